@@ -1,5 +1,6 @@
 package com.pauljoda.nucleus;
 
+import com.pauljoda.nucleus.common.blocks.entity.sync.SyncTiers;
 import net.minecraft.core.registries.BuiltInRegistries;
 import net.minecraft.resources.ResourceLocation;
 import net.minecraft.world.item.Item;
@@ -17,9 +18,54 @@ import java.util.stream.Collectors;
 @Mod.EventBusSubscriber(modid = Nucleus.MODID, bus = Mod.EventBusSubscriber.Bus.MOD)
 public class Config {
     private static final ModConfigSpec.Builder BUILDER = new ModConfigSpec.Builder();
+
+    private static final ModConfigSpec.IntValue SYNC_BYTES_PER_TICK = BUILDER
+            .comment("Bytes of synced block entity values each player may receive per tick.",
+                    "Critical values are always sent, cosmetic values wait for the next tick once this is used up")
+            .defineInRange("syncBytesPerTick", 4096, 64, 1024 * 1024);
+
+    private static final ModConfigSpec.IntValue INITIAL_SYNC_BYTES_PER_TICK = BUILDER
+            .comment("Bytes of streamed initial block entity data each player may receive per tick.",
+                    "At least one block entity is always sent, the rest wait for the next tick once this is used up")
+            .defineInRange("initialSyncBytesPerTick", 32 * 1024, 1024, 16 * 1024 * 1024);
+
+    private static final ModConfigSpec.IntValue PACKET_BURST = BUILDER
+            .comment("Serverbound sync packets a player may send at once before being rate limited")
+            .defineInRange("packetBurst", 40, 1, 10000);
+
+    private static final ModConfigSpec.DoubleValue PACKET_TICKS_PER_TOKEN = BUILDER
+            .comment("Ticks before a rate limited player may send another serverbound sync packet")
+            .defineInRange("packetTicksPerToken", 0.5, 0.01, 100.0);
+
+    private static final ModConfigSpec.ConfigValue<List<? extends String>> SYNC_TIERS = BUILDER
+            .comment("Distance tiers for syncing block entity values, overrides the tiers set in code.",
+                    "Each entry is \"namespace:block_entity_type=range:interval,range:interval\" with ranges in blocks",
+                    "and intervals in ticks, in order of increasing range. Players beyond the last range are not synced")
+            .defineListAllowEmpty("syncTiers", List.of(), entry -> entry instanceof String);
+
+    private static final ModConfigSpec.DoubleValue WORK_BUDGET_MILLIS = BUILDER
+            .comment("Milliseconds each level may spend per tick on work block entities have deferred.",
+                    "Work left over when this is spent runs on the next tick")
+            .defineInRange("workBudgetMillis", 2.0, 0.1, 50.0);
+
     static final ModConfigSpec SPEC = BUILDER.build();
 
+    public static int syncBytesPerTick = 4096;
+    public static int initialSyncBytesPerTick = 32 * 1024;
+    public static int packetBurst = 40;
+    public static double packetTicksPerToken = 0.5;
+    public static double workBudgetMillis = 2.0;
+
     @SubscribeEvent
     static void onLoad(final ModConfigEvent event) {
+        if (event.getConfig().getSpec() != SPEC)
+            return;
+
+        syncBytesPerTick = SYNC_BYTES_PER_TICK.get();
+        initialSyncBytesPerTick = INITIAL_SYNC_BYTES_PER_TICK.get();
+        packetBurst = PACKET_BURST.get();
+        packetTicksPerToken = PACKET_TICKS_PER_TOKEN.get();
+        SyncTiers.loadConfig(SYNC_TIERS.get());
+        workBudgetMillis = WORK_BUDGET_MILLIS.get();
     }
 }
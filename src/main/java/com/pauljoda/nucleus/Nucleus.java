@@ -4,7 +4,9 @@ import com.mojang.logging.LogUtils;
 import com.pauljoda.nucleus.common.CommonEvents;
 import com.pauljoda.nucleus.manager.EventManager;
 import net.neoforged.bus.api.IEventBus;
+import net.neoforged.fml.ModLoadingContext;
 import net.neoforged.fml.common.Mod;
+import net.neoforged.fml.config.ModConfig;
 import org.slf4j.Logger;
 
 @Mod(Nucleus.MODID)
@@ -19,6 +21,7 @@ public class Nucleus {
 
 
     public Nucleus(IEventBus modEventBus) {
+        ModLoadingContext.get().registerConfig(ModConfig.Type.COMMON, Config.SPEC);
         EventManager.init();
     }
 }
@@ -19,6 +19,9 @@ public class EnergyBank implements IEnergyStorage, Savable {
     protected int maxReceive;
     protected int maxExtract;
 
+    // Told when the stored energy changes, used to wake sleeping block entities
+    private Runnable changeListener;
+
     /**
      * Constructs a new EnergyBank object with the given capacity.
      *
@@ -72,7 +75,10 @@ public class EnergyBank implements IEnergyStorage, Savable {
      * @param energy the amount of energy to be set in the bank.
      */
     public void setEnergy(int energy) {
-        this.energy = energy;
+        if (this.energy != energy) {
+            this.energy = energy;
+            onEnergyChanged();
+        }
     }
 
     /**
@@ -138,6 +144,25 @@ public class EnergyBank implements IEnergyStorage, Savable {
         return this.maxExtract;
     }
 
+    /**
+     * Set the listener told whenever the stored energy changes, by receiving, extracting or setting it
+     *
+     * @param changeListener The listener
+     * @return This, to enable chaining
+     */
+    public EnergyBank setChangeListener(Runnable changeListener) {
+        this.changeListener = changeListener;
+        return this;
+    }
+
+    /**
+     * Tells the listener the stored energy changed
+     */
+    protected void onEnergyChanged() {
+        if (changeListener != null)
+            changeListener.run();
+    }
+
     /**
      * Adds energy to the storage. Returns the quantity of energy that was accepted.
      *
@@ -152,8 +177,11 @@ public class EnergyBank implements IEnergyStorage, Savable {
             return 0;
 
         int energyReceived = Math.min(capacity - energy, Math.min(this.maxReceive, maxReceive));
-        if (!simulate)
+        if (!simulate) {
             energy += energyReceived;
+            if (energyReceived > 0)
+                onEnergyChanged();
+        }
         return energyReceived;
     }
 
@@ -170,8 +198,10 @@ public class EnergyBank implements IEnergyStorage, Savable {
             return 0;
 
         int energyExtracted = Math.min(energy, Math.min(this.maxExtract, maxExtract));
-        if (!simulate)
+        if (!simulate && energyExtracted > 0) {
             energy -= energyExtracted;
+            onEnergyChanged();
+        }
         return energyExtracted;
     }
 
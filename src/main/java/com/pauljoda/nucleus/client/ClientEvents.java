@@ -2,6 +2,7 @@ package com.pauljoda.nucleus.client;
 
 import com.pauljoda.nucleus.Nucleus;
 import com.pauljoda.nucleus.client.events.ToolTipEvent;
+import com.pauljoda.nucleus.network.ClientRequestTracker;
 import com.pauljoda.nucleus.util.TimeUtils;
 import net.neoforged.api.distmarker.Dist;
 import net.neoforged.bus.api.SubscribeEvent;
@@ -16,5 +17,6 @@ public class ClientEvents {
     @SubscribeEvent
     public static void onClientLoad(FMLClientSetupEvent event) {
         NeoForge.EVENT_BUS.register(new ToolTipEvent());
+        NeoForge.EVENT_BUS.register(ClientRequestTracker.INSTANCE);
     }
 }
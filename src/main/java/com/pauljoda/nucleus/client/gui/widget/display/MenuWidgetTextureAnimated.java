@@ -1,6 +1,8 @@
 package com.pauljoda.nucleus.client.gui.widget.display;
 
 import com.pauljoda.nucleus.client.gui.MenuBase;
+import com.pauljoda.nucleus.common.blocks.entity.Syncable;
+import com.pauljoda.nucleus.util.ClientUtils;
 import com.pauljoda.nucleus.util.RenderUtils;
 import net.minecraft.client.gui.GuiGraphics;
 
@@ -56,6 +58,23 @@ public abstract class MenuWidgetTextureAnimated extends MenuWidgetTexture {
      */
     protected abstract int getCurrentProgress(int scale);
 
+    /**
+     * Helper for {@link #getCurrentProgress(int)}, scales a synced field using its interpolated value so the bar moves
+     * smoothly between server updates
+     *
+     * @param syncable The block entity holding the field
+     * @param fieldId  The field id
+     * @param max      The value that fills the bar
+     * @param scale    What to scale to
+     * @return How far along 0-scale the value is
+     */
+    protected int getSyncedProgress(Syncable syncable, int fieldId, double max, int scale) {
+        if (max <= 0)
+            return 0;
+        double value = syncable.getInterpolatedVariable(fieldId, ClientUtils.getPartialTick());
+        return (int) Math.round(Math.max(0, Math.min(value, max)) * scale / max);
+    }
+
     /*******************************************************************************************************************
      * BaseComponent                                                                                                   *
      *******************************************************************************************************************/
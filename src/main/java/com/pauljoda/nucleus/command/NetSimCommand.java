@@ -0,0 +1,99 @@
+package com.pauljoda.nucleus.command;
+
+import com.mojang.brigadier.arguments.DoubleArgumentType;
+import com.mojang.brigadier.arguments.IntegerArgumentType;
+import com.mojang.brigadier.arguments.StringArgumentType;
+import com.mojang.brigadier.builder.ArgumentBuilder;
+import com.mojang.brigadier.context.CommandContext;
+import com.pauljoda.nucleus.network.sim.LoopbackChannel;
+import com.pauljoda.nucleus.network.sim.SyncSimulation;
+import net.minecraft.Util;
+import net.minecraft.commands.CommandSourceStack;
+import net.minecraft.commands.Commands;
+import net.minecraft.commands.SharedSuggestionProvider;
+import net.minecraft.network.chat.Component;
+
+import java.util.Arrays;
+import java.util.Locale;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * /nucleus netsim &lt;workload&gt; &lt;blocks&gt; &lt;interval&gt; [latency jitter loss]
+ * <p>
+ * Runs a {@link SyncSimulation} over a {@link LoopbackChannel} and prints the bandwidth, convergence and packet
+ * codec checks, used to compare sync settings without a client. Runs are seeded so the same arguments give the same
+ * result. The simulation runs on a background thread so large runs do not stall the server, one at a time
+ */
+public class NetSimCommand {
+    // Simulation defaults
+    private static final int FIELDS_PER_BLOCK = 4;
+    private static final int TICKS = 200;
+    private static final long SEED = 0L;
+
+    // Set while a simulation runs in the background
+    private static final AtomicBoolean RUNNING = new AtomicBoolean(false);
+
+    /**
+     * Builds the command
+     *
+     * @return The netsim literal
+     */
+    public static ArgumentBuilder<CommandSourceStack, ?> register() {
+        return Commands.literal("netsim")
+                .then(Commands.argument("workload", StringArgumentType.word())
+                        .suggests((context, builder) -> SharedSuggestionProvider.suggest(
+                                Arrays.stream(SyncSimulation.Workload.values())
+                                        .map(workload -> workload.name().toLowerCase(Locale.ROOT)), builder))
+                        .then(Commands.argument("blocks", IntegerArgumentType.integer(1, 10000))
+                                .then(Commands.argument("interval", IntegerArgumentType.integer(0, 200))
+                                        .executes(context -> run(context, 0, 0, 0))
+                                        .then(Commands.argument("latency", IntegerArgumentType.integer(0, 200))
+                                                .then(Commands.argument("jitter", IntegerArgumentType.integer(0, 200))
+                                                        .then(Commands.argument("loss", DoubleArgumentType.doubleArg(0, 1))
+                                                                .executes(context -> run(context,
+                                                                        IntegerArgumentType.getInteger(context, "latency"),
+                                                                        IntegerArgumentType.getInteger(context, "jitter"),
+                                                                        DoubleArgumentType.getDouble(context, "loss")))))))));
+    }
+
+    /**
+     * Starts the simulation in the background, the result is printed on the server thread once done
+     */
+    private static int run(CommandContext<CommandSourceStack> context, int latency, int jitter, double loss) {
+        SyncSimulation.Workload workload;
+        try {
+            workload = SyncSimulation.Workload.valueOf(
+                    StringArgumentType.getString(context, "workload").toUpperCase(Locale.ROOT));
+        } catch (IllegalArgumentException e) {
+            context.getSource().sendFailure(Component.literal("Unknown workload, use ramp, noise or step"));
+            return 0;
+        }
+
+        if (!RUNNING.compareAndSet(false, true)) {
+            context.getSource().sendFailure(Component.literal("A simulation is already running"));
+            return 0;
+        }
+
+        var source = context.getSource();
+        var settings = new SyncSimulation.Settings(workload,
+                IntegerArgumentType.getInteger(context, "blocks"), FIELDS_PER_BLOCK, TICKS,
+                IntegerArgumentType.getInteger(context, "interval"));
+        source.sendSuccess(() -> Component.literal("Running sync simulation..."), false);
+
+        CompletableFuture.supplyAsync(() ->
+                        new SyncSimulation(settings, new LoopbackChannel(latency, jitter, loss, SEED), SEED).run(),
+                        Util.backgroundExecutor())
+                .whenCompleteAsync((result, error) -> {
+                    RUNNING.set(false);
+                    if (error != null) {
+                        source.sendFailure(Component.literal("Sync simulation failed: " + error.getMessage()));
+                        return;
+                    }
+
+                    for (String line : result.toLines())
+                        source.sendSuccess(() -> Component.literal(line), false);
+                }, source.getServer());
+        return 1;
+    }
+}
@@ -0,0 +1,77 @@
+package com.pauljoda.nucleus.command;
+
+import com.mojang.brigadier.builder.ArgumentBuilder;
+import com.pauljoda.nucleus.network.NetworkMetrics;
+import net.minecraft.commands.CommandSourceStack;
+import net.minecraft.commands.Commands;
+import net.minecraft.network.chat.Component;
+import net.neoforged.fml.loading.FMLPaths;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.text.SimpleDateFormat;
+import java.util.Date;
+
+/**
+ * /nucleus netstats [start|stop|reset|dump]
+ * <p>
+ * Controls the {@link NetworkMetrics} and prints or exports what was recorded
+ */
+public class NetStatsCommand {
+    // Entries printed to chat per section, the dump has all
+    private static final int CHAT_LIMIT = 10;
+
+    /**
+     * Builds the command
+     *
+     * @return The netstats literal
+     */
+    public static ArgumentBuilder<CommandSourceStack, ?> register() {
+        return Commands.literal("netstats")
+                .executes(context -> print(context.getSource()))
+                .then(Commands.literal("start").executes(context -> {
+                    NetworkMetrics.INSTANCE.setEnabled(true);
+                    context.getSource().sendSuccess(() -> Component.literal("Nucleus network stats recording"), true);
+                    return 1;
+                }))
+                .then(Commands.literal("stop").executes(context -> {
+                    NetworkMetrics.INSTANCE.setEnabled(false);
+                    context.getSource().sendSuccess(() -> Component.literal("Nucleus network stats stopped"), true);
+                    return 1;
+                }))
+                .then(Commands.literal("reset").executes(context -> {
+                    NetworkMetrics.INSTANCE.reset();
+                    context.getSource().sendSuccess(() -> Component.literal("Nucleus network stats reset"), true);
+                    return 1;
+                }))
+                .then(Commands.literal("dump").executes(context -> dump(context.getSource())));
+    }
+
+    /**
+     * Prints the top entries to the command source
+     */
+    private static int print(CommandSourceStack source) {
+        for (String line : NetworkMetrics.INSTANCE.buildReport(CHAT_LIMIT))
+            source.sendSuccess(() -> Component.literal(line), false);
+        return 1;
+    }
+
+    /**
+     * Writes the full report to the nucleus folder in the game directory
+     */
+    private static int dump(CommandSourceStack source) {
+        String timestamp = new SimpleDateFormat("yyyy-MM-dd_HH.mm.ss").format(new Date());
+        Path file = FMLPaths.GAMEDIR.get().resolve("nucleus").resolve("netstats-" + timestamp + ".txt");
+        try {
+            Files.createDirectories(file.getParent());
+            Files.write(file, NetworkMetrics.INSTANCE.buildReport(0));
+        } catch (IOException e) {
+            source.sendFailure(Component.literal("Failed to write network stats: " + e.getMessage()));
+            return 0;
+        }
+
+        source.sendSuccess(() -> Component.literal("Network stats written to " + file), false);
+        return 1;
+    }
+}
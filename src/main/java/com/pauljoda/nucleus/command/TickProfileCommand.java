@@ -0,0 +1,90 @@
+package com.pauljoda.nucleus.command;
+
+import com.mojang.brigadier.arguments.IntegerArgumentType;
+import com.mojang.brigadier.builder.ArgumentBuilder;
+import com.pauljoda.nucleus.common.blocks.entity.TickProfiler;
+import net.minecraft.commands.CommandSourceStack;
+import net.minecraft.commands.Commands;
+import net.minecraft.network.chat.Component;
+import net.neoforged.fml.loading.FMLPaths;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.text.SimpleDateFormat;
+import java.util.Date;
+
+/**
+ * /nucleus tickprofile [start [seconds]|stop|reset|dump]
+ * <p>
+ * Controls the {@link TickProfiler} and prints or exports the slowest block entity types and positions
+ */
+public class TickProfileCommand {
+    // Entries printed to chat per section, the dump has all
+    private static final int CHAT_LIMIT = 10;
+
+    /**
+     * Builds the command
+     *
+     * @return The tickprofile literal
+     */
+    public static ArgumentBuilder<CommandSourceStack, ?> register() {
+        return Commands.literal("tickprofile")
+                .executes(context -> print(context.getSource()))
+                .then(Commands.literal("start")
+                        .executes(context -> start(context.getSource(), 0))
+                        .then(Commands.argument("seconds", IntegerArgumentType.integer(1, 3600))
+                                .executes(context -> start(context.getSource(),
+                                        IntegerArgumentType.getInteger(context, "seconds")))))
+                .then(Commands.literal("stop").executes(context -> {
+                    TickProfiler.INSTANCE.stop();
+                    context.getSource().sendSuccess(() -> Component.literal("Nucleus tick profile stopped"), true);
+                    return 1;
+                }))
+                .then(Commands.literal("reset").executes(context -> {
+                    TickProfiler.INSTANCE.reset();
+                    context.getSource().sendSuccess(() -> Component.literal("Nucleus tick profile reset"), true);
+                    return 1;
+                }))
+                .then(Commands.literal("dump").executes(context -> dump(context.getSource())));
+    }
+
+    /**
+     * Starts a new sampling window
+     */
+    private static int start(CommandSourceStack source, int seconds) {
+        TickProfiler.INSTANCE.start(seconds);
+        String message = seconds > 0 ?
+                "Nucleus tick profile recording for " + seconds + "s" :
+                "Nucleus tick profile recording";
+        source.sendSuccess(() -> Component.literal(message), true);
+        return 1;
+    }
+
+    /**
+     * Prints the top entries to the command source
+     */
+    private static int print(CommandSourceStack source) {
+        for (String line : TickProfiler.INSTANCE.buildReport(CHAT_LIMIT))
+            source.sendSuccess(() -> Component.literal(line), false);
+        return 1;
+    }
+
+    /**
+     * Writes the full report to the nucleus folder in the game directory
+     */
+    private static int dump(CommandSourceStack source) {
+        String timestamp = new SimpleDateFormat("yyyy-MM-dd_HH.mm.ss").format(new Date());
+        Path file = FMLPaths.GAMEDIR.get().resolve("nucleus").resolve("tickprofile-" + timestamp + ".txt");
+        try {
+            Files.createDirectories(file.getParent());
+            Files.write(file, TickProfiler.INSTANCE.buildReport(0));
+        } catch (IOException e) {
+            source.sendFailure(Component.literal("Failed to write tick profile: " + e.getMessage()));
+            return 0;
+        }
+
+        source.sendSuccess(() -> Component.literal("Tick profile written to " + file), false);
+        return 1;
+    }
+}
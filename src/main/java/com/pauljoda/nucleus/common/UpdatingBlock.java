@@ -4,6 +4,7 @@ import com.pauljoda.nucleus.common.blocks.entity.UpdatingBlockEntity;
 import net.minecraft.core.BlockPos;
 import net.minecraft.world.level.Level;
 import net.minecraft.world.level.block.BaseEntityBlock;
+import net.minecraft.world.level.block.Block;
 import net.minecraft.world.level.block.entity.BlockEntity;
 import net.minecraft.world.level.block.entity.BlockEntityTicker;
 import net.minecraft.world.level.block.entity.BlockEntityType;
@@ -31,10 +32,25 @@ public abstract class UpdatingBlock extends BaseEntityBlock {
      * BlockEntity                                                                                                     *
      *******************************************************************************************************************/
 
+    /**
+     * Only ticks the sides the block entity has work on, see {@link UpdatingBlockEntity#createTicker}
+     */
     @Nullable
     @Override
     public <T extends BlockEntity> BlockEntityTicker<T> getTicker(@NotNull Level level, @NotNull BlockState state,
                                                                   @NotNull BlockEntityType<T> type) {
-        return UpdatingBlockEntity::tick;
+        return UpdatingBlockEntity.createTicker(level, type);
+    }
+
+    /**
+     * Wake our block entity, a neighbor changing may give it work
+     */
+    @Override
+    @SuppressWarnings("deprecation")
+    public void neighborChanged(@NotNull BlockState state, @NotNull Level level, @NotNull BlockPos pos,
+                                @NotNull Block neighborBlock, @NotNull BlockPos neighborPos, boolean movedByPiston) {
+        super.neighborChanged(state, level, pos, neighborBlock, neighborPos, movedByPiston);
+        if (!level.isClientSide && level.getBlockEntity(pos) instanceof UpdatingBlockEntity blockEntity)
+            blockEntity.wake();
     }
 }
@@ -0,0 +1,108 @@
+package com.pauljoda.nucleus.common.blocks.entity;
+
+import it.unimi.dsi.fastutil.objects.Reference2IntLinkedOpenHashMap;
+import it.unimi.dsi.fastutil.objects.Reference2IntMap;
+import it.unimi.dsi.fastutil.objects.Reference2IntMaps;
+import it.unimi.dsi.fastutil.objects.Reference2ObjectOpenHashMap;
+import net.minecraft.world.level.Level;
+import net.minecraft.world.level.LevelAccessor;
+import net.minecraft.world.level.block.Block;
+import net.minecraft.world.level.block.state.BlockState;
+import net.neoforged.bus.api.SubscribeEvent;
+import net.neoforged.neoforge.event.TickEvent;
+import net.neoforged.neoforge.event.level.LevelEvent;
+import net.neoforged.neoforge.event.server.ServerStoppedEvent;
+
+import java.util.Map;
+
+/**
+ * Collects {@link UpdatingBlockEntity#markForUpdate(int)} calls made on the server and sends one block update per
+ * block entity when its level finishes ticking, no matter how many times it was marked.
+ * <p>
+ * Flags of repeated calls are merged, any bit set by one call is kept. The exception is
+ * {@link Block#UPDATE_INVISIBLE}, which skips the re-render and is only kept if every call asked for it.
+ */
+public class BlockUpdateBatcher {
+    /**
+     * The singleton instance of this class.
+     */
+    public static final BlockUpdateBatcher INSTANCE = new BlockUpdateBatcher();
+
+    // Block entities waiting for their update, with the merged flags, per level
+    private final Map<Level, Reference2IntLinkedOpenHashMap<UpdatingBlockEntity>> pendingByLevel =
+            new Reference2ObjectOpenHashMap<>();
+
+    /**
+     * Queue a block update for the end of the level tick
+     *
+     * @param blockEntity The block entity to update
+     * @param flags       The update flags
+     */
+    public void markForUpdate(UpdatingBlockEntity blockEntity, int flags) {
+        Level level = blockEntity.getLevel();
+        Reference2IntLinkedOpenHashMap<UpdatingBlockEntity> pending = pendingByLevel.get(level);
+        if (pending == null) {
+            pending = new Reference2IntLinkedOpenHashMap<>();
+            pendingByLevel.put(level, pending);
+        }
+
+        if (pending.containsKey(blockEntity))
+            pending.put(blockEntity, mergeFlags(pending.getInt(blockEntity), flags));
+        else
+            pending.put(blockEntity, flags);
+    }
+
+    /**
+     * Merges the flags of two updates
+     *
+     * @param current The flags already queued
+     * @param flags   The new flags
+     * @return The combined flags
+     */
+    private static int mergeFlags(int current, int flags) {
+        int invisible = current & flags & Block.UPDATE_INVISIBLE;
+        return ((current | flags) & ~Block.UPDATE_INVISIBLE) | invisible;
+    }
+
+    /**
+     * Sends the queued updates of the level once it has finished ticking
+     */
+    @SubscribeEvent
+    public void onLevelTick(TickEvent.LevelTickEvent event) {
+        if (event.phase != TickEvent.Phase.END || event.level.isClientSide)
+            return;
+
+        Reference2IntLinkedOpenHashMap<UpdatingBlockEntity> pending = pendingByLevel.get(event.level);
+        if (pending == null || pending.isEmpty())
+            return;
+
+        for (Reference2IntMap.Entry<UpdatingBlockEntity> entry : Reference2IntMaps.fastIterable(pending)) {
+            UpdatingBlockEntity blockEntity = entry.getKey();
+            if (blockEntity.isRemoved() || blockEntity.getLevel() != event.level)
+                continue;
+
+            BlockState state = event.level.getBlockState(blockEntity.getBlockPos());
+            event.level.sendBlockUpdated(blockEntity.getBlockPos(), state, state, entry.getIntValue());
+            blockEntity.setChanged();
+        }
+        pending.clear();
+    }
+
+    /**
+     * Drop updates of a level that is going away
+     */
+    @SubscribeEvent
+    public void onLevelUnload(LevelEvent.Unload event) {
+        LevelAccessor level = event.getLevel();
+        if (level instanceof Level)
+            pendingByLevel.remove(level);
+    }
+
+    /**
+     * Drop anything left over so we don't hold on to levels from the old server
+     */
+    @SubscribeEvent
+    public void onServerStopped(ServerStoppedEvent event) {
+        pendingByLevel.clear();
+    }
+}
@@ -1,11 +1,35 @@
 package com.pauljoda.nucleus.common.blocks.entity;
 
+import com.pauljoda.nucleus.common.blocks.entity.sync.SentStacks;
+import com.pauljoda.nucleus.common.blocks.entity.sync.SyncTiers;
+import com.pauljoda.nucleus.common.blocks.entity.sync.SyncedField;
+import com.pauljoda.nucleus.common.blocks.entity.sync.SyncedFieldRegistry;
+import com.pauljoda.nucleus.common.container.IBlockBoundMenu;
+import com.pauljoda.nucleus.network.ClientRequestTracker;
+import com.pauljoda.nucleus.network.NetworkMetrics;
 import com.pauljoda.nucleus.network.PacketManager;
+import com.pauljoda.nucleus.network.SyncOutbox;
 import com.pauljoda.nucleus.network.packets.bidirectional.SyncableFieldPacket;
+import com.pauljoda.nucleus.network.packets.clientbound.StackSyncPacket;
+import com.pauljoda.nucleus.network.packets.clientbound.SyncBundlePacket;
+import com.pauljoda.nucleus.network.packets.serverbound.SyncableQueryPacket;
+import it.unimi.dsi.fastutil.ints.Int2DoubleLinkedOpenHashMap;
+import it.unimi.dsi.fastutil.ints.Int2DoubleMap;
+import it.unimi.dsi.fastutil.ints.Int2DoubleMaps;
+import it.unimi.dsi.fastutil.ints.Int2LongOpenHashMap;
+import it.unimi.dsi.fastutil.objects.Reference2LongOpenHashMap;
 import net.minecraft.core.BlockPos;
+import net.minecraft.server.level.ServerLevel;
+import net.minecraft.server.level.ServerPlayer;
+import net.minecraft.world.entity.player.Player;
+import net.minecraft.world.item.ItemStack;
+import net.minecraft.world.level.ChunkPos;
 import net.minecraft.world.level.block.entity.BlockEntityType;
 import net.minecraft.world.level.block.state.BlockState;
-import net.neoforged.neoforge.network.PacketDistributor;
+import net.neoforged.neoforge.fluids.FluidStack;
+
+import javax.annotation.Nullable;
+import java.util.concurrent.CompletableFuture;
 
 /**
  * This file was created for Nucleus - Java
@@ -19,36 +43,261 @@ import net.neoforged.neoforge.network.PacketDistributor;
  */
 public abstract class Syncable extends UpdatingBlockEntity {
 
+    // Players within this many blocks may read and write our fields, matches menu reach
+    protected static final int ACCESS_RANGE = 8;
+
+    // Latest broadcast value of each field and the tick it was queued on, players get what changed since their sync
+    private final Int2DoubleLinkedOpenHashMap broadcastValues = new Int2DoubleLinkedOpenHashMap();
+    private final Int2LongOpenHashMap broadcastTicks = new Int2LongOpenHashMap();
+    private long lastBroadcastTick = -1;
+    private boolean hasPendingBroadcast = false;
+
+    // Tick each nearby player was last brought up to date on, players out of range are dropped and catch up fully
+    private final Reference2LongOpenHashMap<ServerPlayer> playerSyncTicks = new Reference2LongOpenHashMap<>();
+
+    // Menu only values waiting to be sent at the end of the tick
+    private final Int2DoubleLinkedOpenHashMap pendingMenuValues = new Int2DoubleLinkedOpenHashMap();
+
+    // Inventory and tank changes waiting to be sent and the contents last sent, only used with stack sync
+    @Nullable
+    private StackSyncPacket.Builder pendingStacks;
+    private final SentStacks sentStacks = new SentStacks();
+
+    // Declared fields, built on first use so subclass fields are initialized
+    private SyncedFieldRegistry syncedFields;
+
     public Syncable(BlockEntityType<?> tileEntityTypeIn, BlockPos pos, BlockState state) {
         super(tileEntityTypeIn, pos, state);
     }
 
     /*******************************************************************************************************************
-     * Abstract Methods                                                                                                *
+     * Synced Fields                                                                                                   *
      *******************************************************************************************************************/
 
     /**
-     * Used to set the value of a field
+     * Declare the fields to keep in sync with the client. Registered fields are checked at the end of every server
+     * tick and only sent when their value changed, no need to call {@link #sendValueToClient(int, double)} for them.
+     * <p>
+     * Call super when overriding so parent fields are kept
+     *
+     * @param registry The registry to add fields to
+     */
+    protected void registerSyncedFields(SyncedFieldRegistry registry) {
+    }
+
+    /**
+     * Get the synced fields of this block entity
+     *
+     * @return The field registry
+     */
+    public SyncedFieldRegistry getSyncedFields() {
+        if (syncedFields == null) {
+            syncedFields = new SyncedFieldRegistry();
+            registerSyncedFields(syncedFields);
+        }
+        return syncedFields;
+    }
+
+    /**
+     * Used to set the value of a field, by default writes to the registered field
      *
      * @param id    The field id
      * @param value The value of the field
      */
-    public abstract void setVariable(int id, double value);
+    public void setVariable(int id, double value) {
+        SyncedField field = getSyncedFields().get(id);
+        if (field != null)
+            field.setValue(value);
+    }
+
+    /**
+     * Called on the client when a synced value arrives from the server, interpolated fields also record the sample
+     * so {@link #getInterpolatedVariable(int, float)} can smooth between updates
+     *
+     * @param id         The field id
+     * @param value      The value received
+     * @param serverTick The server tick the value was sent on
+     */
+    public void receiveVariable(int id, double value, long serverTick) {
+        SyncedField field = getSyncedFields().get(id);
+        if (field != null && field.isInterpolated() && getLevel() != null)
+            field.receiveSample(value, serverTick, getLevel().getGameTime());
+        setVariable(id, value);
+    }
+
+    /**
+     * Get the value to draw for a field on the client, smoothed between server updates when the field is registered
+     * as interpolated
+     *
+     * @param id          The field id
+     * @param partialTick The partial tick of the frame
+     * @return The value to draw
+     */
+    public double getInterpolatedVariable(int id, float partialTick) {
+        SyncedField field = getSyncedFields().get(id);
+        if (field == null || getLevel() == null)
+            return getVariable(id);
+        return field.getInterpolatedValue(getLevel().getGameTime() + partialTick);
+    }
 
     /**
-     * Used to get the field on the server, this will fetch the server value and overwrite the current
+     * Used to get the field on the server, by default reads the registered field
      *
      * @param id The field id
      * @return The value on the server, now set to ourselves
      */
-    public abstract Double getVariable(int id);
+    public Double getVariable(int id) {
+        SyncedField field = getSyncedFields().get(id);
+        return field != null ? field.getValue() : 0.0;
+    }
+
+    /**
+     * Queues every registered field whose value changed since it was last sent and is allowed through by its
+     * throttling, called by the {@link SyncOutbox} at the end of the tick. Fields are checked even while we sleep,
+     * since their values may change without waking us. Changed stacks are collected too when using stack sync, only
+     * while awake as comparing every slot is the costly part
+     */
+    public void queueChangedFields() {
+        if (getLevel() == null)
+            return;
+
+        getSyncedFields().collectChanged(getLevel().getGameTime(),
+                (field, value) -> sendValueToClient(field.getId(), value));
+
+        if (useStackSync() && !isSleeping()) {
+            if (pendingStacks == null)
+                pendingStacks = new StackSyncPacket.Builder(getBlockPos());
+            collectStackChanges(pendingStacks);
+            if (!pendingStacks.isEmpty())
+                SyncOutbox.INSTANCE.markDirty(this);
+        }
+    }
+
+    /*******************************************************************************************************************
+     * Stack Sync                                                                                                      *
+     *******************************************************************************************************************/
+
+    /**
+     * Override to send changed inventory slots and tanks as {@link StackSyncPacket}s instead of a full block update.
+     * Items and fluids are sent as small per player ids, so storage that changes every tick stays cheap. Changes go
+     * to every player tracking our chunk, the chunk itself still carries the full contents
+     *
+     * @return True to use stack sync
+     */
+    protected boolean useStackSync() {
+        return false;
+    }
+
+    /**
+     * Get the slots and tanks last sent to clients, pass it the contents in {@link #collectStackChanges}
+     *
+     * @return The sent stacks
+     */
+    protected SentStacks getSentStacks() {
+        return sentStacks;
+    }
+
+    /**
+     * Call when our inventory or tanks changed. With stack sync the change reaches clients on its own, so we only
+     * need saving, otherwise a block update is sent. Wakes us in case we were sleeping
+     */
+    protected void onStacksChanged() {
+        wake();
+        if (useStackSync())
+            setChanged();
+        else
+            markForUpdate(3);
+    }
+
+    /**
+     * Add the slots and tanks that changed since the last call, called every tick when using stack sync
+     *
+     * @param builder The builder to add changes to
+     */
+    protected void collectStackChanges(StackSyncPacket.Builder builder) {
+    }
+
+    /**
+     * Called on the client when a changed slot arrives from the server
+     *
+     * @param slot  The slot
+     * @param stack The new contents
+     */
+    public void receiveItemStack(int slot, ItemStack stack) {
+    }
+
+    /**
+     * Called on the client when a changed tank arrives from the server
+     *
+     * @param tank  The tank
+     * @param stack The new contents
+     */
+    public void receiveFluidStack(int tank, FluidStack stack) {
+    }
+
+    /**
+     * Sends the collected stack changes to every player tracking our chunk, each with their own palette
+     *
+     * @param serverLevel Our level
+     */
+    private void flushStacksToClient(ServerLevel serverLevel) {
+        for (ServerPlayer player : serverLevel.getChunkSource().chunkMap.getPlayers(new ChunkPos(getBlockPos()), false))
+            PacketManager.INSTANCE.sendTo(pendingStacks.build(player), player);
+        pendingStacks.clear();
+    }
+
+    /**
+     * Queue what changed this tick before we go to sleep, stacks are not checked while we sleep
+     */
+    @Override
+    public void sleep() {
+        if (getLevel() != null && !getLevel().isClientSide)
+            queueChangedFields();
+        super.sleep();
+    }
+
+    /**
+     * Queue what changed this tick before we go to sleep, stacks are not checked while we sleep
+     *
+     * @param ticks How many ticks to sleep
+     */
+    @Override
+    public void sleepFor(int ticks) {
+        if (getLevel() != null && !getLevel().isClientSide)
+            queueChangedFields();
+        super.sleepFor(ticks);
+    }
+
+    /*******************************************************************************************************************
+     * BlockEntity                                                                                                     *
+     *******************************************************************************************************************/
+
+    /**
+     * Start watching our registered fields and stacks once we are in the level
+     */
+    @Override
+    public void onLoad() {
+        super.onLoad();
+        if (getLevel() != null && !getLevel().isClientSide && (!getSyncedFields().isEmpty() || useStackSync()))
+            SyncOutbox.INSTANCE.watch(this);
+    }
+
+    /**
+     * Stop watching once removed from the level
+     */
+    @Override
+    public void setRemoved() {
+        super.setRemoved();
+        SyncOutbox.INSTANCE.unwatch(this);
+    }
 
     /*******************************************************************************************************************
      * Syncable                                                                                                        *
      *******************************************************************************************************************/
 
     /**
-     * Sends the value to the server, you should probably only call this from the client
+     * Sends the value to the server, you should probably only call this from the client. The server only accepts it
+     * for fields that are {@link #isClientWritable(int)}
      */
     public void sendValueToServer(int id, double value) {
         PacketManager.INSTANCE.sendToServer(new SyncableFieldPacket(false, id, value, getBlockPos()));
@@ -57,19 +306,243 @@ public abstract class Syncable extends UpdatingBlockEntity {
     /**
      * Will get the value from the server and set it to our current value, call from client
      * Only use if you lose data and want to update from server. Few cases for this
+     * <p>
+     * Only this client receives the answer. The future fails if the server refuses or does not answer in time
+     *
+     * @param id The field id
+     * @return A future completed with the value once it has been set
      */
-    public void updateClientValueFromServer(int id) {
-        PacketManager.INSTANCE.sendToServer(new SyncableFieldPacket(true, id, 0, getBlockPos()));
+    public CompletableFuture<Double> updateClientValueFromServer(int id) {
+        int requestId = ClientRequestTracker.INSTANCE.createRequest(ClientRequestTracker.DEFAULT_TIMEOUT_MILLIS);
+        PacketManager.INSTANCE.sendToServer(new SyncableQueryPacket(requestId, id, getBlockPos()));
+        return ClientRequestTracker.INSTANCE.getFuture(requestId).thenApply(value -> {
+            setVariable(id, value);
+            return value;
+        });
     }
 
     /**
-     * Sends the value to the clients nearby
+     * Queues the value to be sent to the clients nearby at the end of the tick. Multiple calls in the same tick are
+     * sent together, and a later value for the same id replaces the earlier one. Fields registered as menu only are
+     * sent just to the players with our menu open
      */
     public void sendValueToClient(int id, double value) {
-        PacketManager.INSTANCE.sendToAllAround(
-                new SyncableFieldPacket(false, id, value, getBlockPos()),
-                new PacketDistributor.TargetPoint(
-                        getBlockPos().getX(), getBlockPos().getY(), getBlockPos().getZ(),
-                        25, getLevel().dimension()));
+        if (getLevel() == null || getLevel().isClientSide)
+            return;
+
+        if (!hasPendingBroadcast && pendingMenuValues.isEmpty())
+            SyncOutbox.INSTANCE.markDirty(this);
+
+        SyncedField field = getSyncedFields().get(id);
+        if (field != null && field.isMenuOnly())
+            pendingMenuValues.put(id, value);
+        else {
+            long tick = getLevel().getGameTime();
+            broadcastValues.put(id, value);
+            broadcastTicks.put(id, tick);
+            lastBroadcastTick = tick;
+            hasPendingBroadcast = true;
+        }
+    }
+
+    /**
+     * Get the distance tiers used to sync our values, by default the tiers of our block entity type
+     *
+     * @return The sync tiers
+     */
+    public SyncTiers getSyncTiers() {
+        return SyncTiers.get(getType());
+    }
+
+    /**
+     * Queues values into the players' sync bundles, called by the {@link SyncOutbox} at the end of the tick.
+     * <p>
+     * Nearby players get every value changed since they were last synced, as often as their distance tier allows.
+     * Players that come back in range get everything. Menu only values go to the players with our menu open.
+     * Cosmetic fields are queued apart so they can wait when a player's budget is used up
+     *
+     * @return True if a player is behind and we need to flush again on a later tick
+     */
+    public boolean flushValuesToClient() {
+        if (!(getLevel() instanceof ServerLevel serverLevel) || isRemoved()) {
+            hasPendingBroadcast = false;
+            pendingMenuValues.clear();
+            playerSyncTicks.clear();
+            if (pendingStacks != null)
+                pendingStacks.clear();
+            return false;
+        }
+
+        if (pendingStacks != null && !pendingStacks.isEmpty())
+            flushStacksToClient(serverLevel);
+
+        // Critical and cosmetic values are queued separately so the budget can hold back only the cosmetic ones
+        SyncBundlePacket.Entry menuEntry = createEntry(pendingMenuValues, false);
+        SyncBundlePacket.Entry menuCosmeticEntry = createEntry(pendingMenuValues, true);
+        pendingMenuValues.clear();
+        hasPendingBroadcast = false;
+
+        long tick = serverLevel.getGameTime();
+        SyncTiers tiers = getSyncTiers();
+        boolean playersBehind = false;
+
+        // Players synced on the same tick get the same entries, usually everyone
+        long cachedSince = Long.MIN_VALUE;
+        SyncBundlePacket.Entry clientEntry = null, clientCosmeticEntry = null;
+
+        double x = getBlockPos().getX() + 0.5;
+        double y = getBlockPos().getY() + 0.5;
+        double z = getBlockPos().getZ() + 0.5;
+        for (ServerPlayer player : serverLevel.players()) {
+            if (isMenuOpenBy(player)) {
+                queueEntry(menuEntry, player, false);
+                queueEntry(menuCosmeticEntry, player, true);
+            }
+
+            int interval = tiers.getInterval(player.distanceToSqr(x, y, z));
+            if (interval == 0) {
+                playerSyncTicks.removeLong(player);
+                continue;
+            }
+
+            long syncedTick = playerSyncTicks.getOrDefault(player, -1L);
+            if (syncedTick >= lastBroadcastTick)
+                continue;
+            if (syncedTick >= 0 && tick - syncedTick < interval) {
+                playersBehind = true;
+                continue;
+            }
+
+            if (syncedTick != cachedSince) {
+                cachedSince = syncedTick;
+                Int2DoubleLinkedOpenHashMap changed = getBroadcastValuesSince(syncedTick);
+                clientEntry = createEntry(changed, false);
+                clientCosmeticEntry = createEntry(changed, true);
+            }
+            queueEntry(clientEntry, player, false);
+            queueEntry(clientCosmeticEntry, player, true);
+            playerSyncTicks.put(player, tick);
+        }
+
+        // Forget players that left the level
+        // Respawning replaces the player object, the old one is removed
+        if (playerSyncTicks.size() > serverLevel.players().size())
+            playerSyncTicks.keySet().removeIf(player -> player.isRemoved() || player.level() != serverLevel);
+        return playersBehind;
+    }
+
+    /**
+     * Checks if the player is within our tiers but missed values, usually because they just came into range
+     *
+     * @param player The player to check
+     * @return True if we need to flush to bring them up to date
+     */
+    public boolean needsCatchUp(ServerPlayer player) {
+        if (lastBroadcastTick < 0 || playerSyncTicks.getOrDefault(player, -1L) >= lastBroadcastTick)
+            return false;
+
+        return getSyncTiers().getInterval(player.distanceToSqr(getBlockPos().getX() + 0.5,
+                getBlockPos().getY() + 0.5,
+                getBlockPos().getZ() + 0.5)) > 0;
+    }
+
+    /**
+     * Get the broadcast values changed after the given tick
+     *
+     * @param sinceTick The last tick the player was synced, -1 for all values
+     * @return The values
+     */
+    private Int2DoubleLinkedOpenHashMap getBroadcastValuesSince(long sinceTick) {
+        Int2DoubleLinkedOpenHashMap values = new Int2DoubleLinkedOpenHashMap();
+        for (var entry : Int2DoubleMaps.fastIterable(broadcastValues)) {
+            if (broadcastTicks.get(entry.getIntKey()) > sinceTick)
+                values.put(entry.getIntKey(), entry.getDoubleValue());
+        }
+        return values;
+    }
+
+    /**
+     * Sends the current value of every menu only field to the player, used when they open our menu since they
+     * did not receive the changes while it was closed
+     *
+     * @param player The player that opened the menu
+     */
+    public void sendMenuFieldsTo(ServerPlayer player) {
+        Int2DoubleLinkedOpenHashMap values = new Int2DoubleLinkedOpenHashMap();
+        for (SyncedField field : getSyncedFields().getFields()) {
+            if (field.isMenuOnly())
+                values.put(field.getId(), field.getValue());
+        }
+
+        // The player just opened the menu, everything is critical
+        queueEntry(createEntry(values, false), player, false);
+        queueEntry(createEntry(values, true), player, false);
+    }
+
+    /**
+     * Checks if clients may set the field through {@link #sendValueToServer(int, double)}. By default only fields
+     * registered as {@link SyncedField#clientWritable()} are, override for fields handled in {@link #setVariable}
+     *
+     * @param id The field id
+     * @return True if the client may write the field
+     */
+    public boolean isClientWritable(int id) {
+        SyncedField field = getSyncedFields().get(id);
+        return field != null && field.isClientWritable();
+    }
+
+    /**
+     * Checks if the player is allowed to read or write our fields, they must have our menu open or be close enough
+     * to use the block
+     *
+     * @param player The player to check
+     * @return True if the player may access our fields
+     */
+    public boolean canPlayerAccess(Player player) {
+        return isMenuOpenBy(player) ||
+                (player.level() == getLevel() &&
+                        player.distanceToSqr(getBlockPos().getX() + 0.5,
+                                getBlockPos().getY() + 0.5,
+                                getBlockPos().getZ() + 0.5) <= ACCESS_RANGE * ACCESS_RANGE);
+    }
+
+    /**
+     * Checks if the player has a menu open on this block
+     *
+     * @param player The player to check
+     * @return True if their open menu is bound to our position
+     */
+    public boolean isMenuOpenBy(Player player) {
+        return player.level() == getLevel() &&
+                player.containerMenu instanceof IBlockBoundMenu menu &&
+                getBlockPos().equals(menu.getBoundBlockPos());
+    }
+
+    /**
+     * Adds the entry to the player's bundle for this tick
+     *
+     * @param entry    The values to send, nothing is queued if null
+     * @param player   The player to send them to
+     * @param cosmetic True if the values may wait when the player's budget is used up
+     */
+    private void queueEntry(@Nullable SyncBundlePacket.Entry entry, ServerPlayer player, boolean cosmetic) {
+        if (entry == null)
+            return;
+
+        if (NetworkMetrics.INSTANCE.isEnabled())
+            NetworkMetrics.INSTANCE.recordBlockEntitySent(getType(), entry.getEncodedSize());
+        PacketManager.INSTANCE.queueSync(entry, player, cosmetic);
+    }
+
+    /**
+     * Builds the bundle entry for the critical or cosmetic values
+     *
+     * @param pending  The values to send
+     * @param cosmetic True to take the cosmetic values, false for the critical ones
+     * @return The entry holding the matching values, null if there are none
+     */
+    @Nullable
+    private SyncBundlePacket.Entry createEntry(Int2DoubleMap pending, boolean cosmetic) {
+        return getSyncedFields().createEntry(getBlockPos(), pending, cosmetic);
     }
 }
@@ -0,0 +1,298 @@
+package com.pauljoda.nucleus.common.blocks.entity;
+
+import it.unimi.dsi.fastutil.objects.Reference2ObjectOpenHashMap;
+import net.minecraft.core.BlockPos;
+import net.minecraft.core.registries.BuiltInRegistries;
+import net.minecraft.resources.ResourceKey;
+import net.minecraft.world.level.Level;
+import net.minecraft.world.level.block.entity.BlockEntityType;
+import net.neoforged.bus.api.SubscribeEvent;
+import net.neoforged.neoforge.event.TickEvent;
+import net.neoforged.neoforge.event.server.ServerStoppedEvent;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Times the server ticks of {@link UpdatingBlockEntity} instances, broken down by block entity type, and keeps the
+ * slowest single ticks with their position.
+ * <p>
+ * Each type gets a histogram of tick times for the percentiles. Buckets split every power of two in eight, so values
+ * are reported within about 12% of the real time.
+ * <p>
+ * Recording is off by default, when disabled a tick costs a single flag check. Only used from the server thread.
+ */
+public class TickProfiler {
+    /**
+     * The singleton instance of this class.
+     */
+    public static final TickProfiler INSTANCE = new TickProfiler();
+
+    // Histogram layout, eight buckets per power of two up to the full range of a long
+    private static final int SUB_BUCKET_BITS = 3;
+    private static final int SUB_BUCKETS = 1 << SUB_BUCKET_BITS;
+    private static final int BUCKETS = (64 - SUB_BUCKET_BITS + 1) * SUB_BUCKETS;
+
+    // How many of the slowest ticks to keep
+    private static final int SLOWEST_LIMIT = 20;
+
+    // Variables
+    private boolean enabled = false;
+    private long startTime = System.currentTimeMillis();
+    private long stopTime = -1;
+    private long stopAtMillis = -1;
+    private final Map<BlockEntityType<?>, TypeStats> typeStats = new Reference2ObjectOpenHashMap<>();
+    private final List<SlowTick> slowestTicks = new ArrayList<>();
+    private long slowestThreshold = 0;
+
+    /**
+     * Stats of one block entity type
+     */
+    private static class TypeStats {
+        private long calls = 0;
+        private long totalNanos = 0;
+        private long maxNanos = 0;
+        private final long[] histogram = new long[BUCKETS];
+    }
+
+    /**
+     * One slow tick
+     *
+     * @param type      The block entity type
+     * @param dimension The level it is in
+     * @param pos       Its position
+     * @param nanos     How long the tick took
+     */
+    private record SlowTick(BlockEntityType<?> type, ResourceKey<Level> dimension, BlockPos pos, long nanos) {
+    }
+
+    /*******************************************************************************************************************
+     * Recording                                                                                                       *
+     *******************************************************************************************************************/
+
+    /**
+     * Checks if ticks should be timed
+     *
+     * @return True while recording
+     */
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    /**
+     * Records one server tick of a block entity
+     *
+     * @param blockEntity The block entity that ticked
+     * @param nanos       How long its tick took
+     */
+    public void record(UpdatingBlockEntity blockEntity, long nanos) {
+        if (!enabled)
+            return;
+
+        TypeStats stats = typeStats.get(blockEntity.getType());
+        if (stats == null) {
+            stats = new TypeStats();
+            typeStats.put(blockEntity.getType(), stats);
+        }
+        stats.calls++;
+        stats.totalNanos += nanos;
+        stats.maxNanos = Math.max(stats.maxNanos, nanos);
+        stats.histogram[getBucket(nanos)]++;
+
+        if (nanos > slowestThreshold && blockEntity.getLevel() != null)
+            recordSlowTick(blockEntity, nanos);
+    }
+
+    /**
+     * Keeps the tick if it is among the slowest, one entry per position
+     */
+    private void recordSlowTick(UpdatingBlockEntity blockEntity, long nanos) {
+        ResourceKey<Level> dimension = blockEntity.getLevel().dimension();
+        for (int i = 0; i < slowestTicks.size(); i++) {
+            SlowTick slowTick = slowestTicks.get(i);
+            if (slowTick.pos().equals(blockEntity.getBlockPos()) && slowTick.dimension() == dimension) {
+                if (nanos > slowTick.nanos())
+                    slowestTicks.set(i, new SlowTick(blockEntity.getType(), dimension, slowTick.pos(), nanos));
+                updateSlowestThreshold();
+                return;
+            }
+        }
+
+        slowestTicks.add(new SlowTick(blockEntity.getType(), dimension, blockEntity.getBlockPos().immutable(), nanos));
+        if (slowestTicks.size() > SLOWEST_LIMIT) {
+            slowestTicks.sort(Comparator.comparingLong(SlowTick::nanos).reversed());
+            slowestTicks.remove(slowestTicks.size() - 1);
+        }
+        updateSlowestThreshold();
+    }
+
+    /**
+     * Once the list is full only ticks slower than its fastest entry can get in
+     */
+    private void updateSlowestThreshold() {
+        if (slowestTicks.size() < SLOWEST_LIMIT)
+            return;
+
+        long threshold = Long.MAX_VALUE;
+        for (SlowTick slowTick : slowestTicks)
+            threshold = Math.min(threshold, slowTick.nanos());
+        slowestThreshold = threshold;
+    }
+
+    /**
+     * Get the histogram bucket of a time, small values get their own bucket and larger ones share eight per power
+     * of two
+     */
+    private static int getBucket(long nanos) {
+        if (nanos < SUB_BUCKETS)
+            return (int) Math.max(nanos, 0);
+
+        int exponent = 63 - Long.numberOfLeadingZeros(nanos);
+        int subBucket = (int) (nanos >>> (exponent - SUB_BUCKET_BITS)) & (SUB_BUCKETS - 1);
+        return (exponent - SUB_BUCKET_BITS + 1) * SUB_BUCKETS + subBucket;
+    }
+
+    /**
+     * Get the largest time that falls in a bucket
+     */
+    private static long getBucketLimit(int bucket) {
+        if (bucket < SUB_BUCKETS)
+            return bucket;
+
+        int exponent = bucket / SUB_BUCKETS + SUB_BUCKET_BITS - 1;
+        long subBucket = bucket % SUB_BUCKETS;
+        long width = 1L << (exponent - SUB_BUCKET_BITS);
+        return ((SUB_BUCKETS + subBucket) << (exponent - SUB_BUCKET_BITS)) + width - 1;
+    }
+
+    /**
+     * Get a percentile from the histogram
+     *
+     * @param stats      The stats to read
+     * @param percentile The percentile, 0 to 1
+     * @return The time in nanos, capped at the max recorded
+     */
+    private static long getPercentile(TypeStats stats, double percentile) {
+        long target = (long) Math.ceil(stats.calls * percentile);
+        long seen = 0;
+        for (int bucket = 0; bucket < BUCKETS; bucket++) {
+            seen += stats.histogram[bucket];
+            if (seen >= target && seen > 0)
+                return Math.min(getBucketLimit(bucket), stats.maxNanos);
+        }
+        return stats.maxNanos;
+    }
+
+    /*******************************************************************************************************************
+     * Control                                                                                                         *
+     *******************************************************************************************************************/
+
+    /**
+     * Start recording, clearing what was recorded before
+     *
+     * @param seconds How long to record, 0 to record until stopped
+     */
+    public void start(int seconds) {
+        reset();
+        enabled = true;
+        stopTime = -1;
+        stopAtMillis = seconds > 0 ? startTime + seconds * 1000L : -1;
+    }
+
+    /**
+     * Stop recording, the results are kept
+     */
+    public void stop() {
+        if (enabled)
+            stopTime = System.currentTimeMillis();
+        enabled = false;
+        stopAtMillis = -1;
+    }
+
+    /**
+     * Clears all stats
+     */
+    public void reset() {
+        typeStats.clear();
+        slowestTicks.clear();
+        slowestThreshold = 0;
+        startTime = System.currentTimeMillis();
+        stopTime = enabled ? -1 : startTime;
+    }
+
+    /**
+     * Ends a timed window once it is over
+     */
+    @SubscribeEvent
+    public void onServerTick(TickEvent.ServerTickEvent event) {
+        if (event.phase == TickEvent.Phase.END && stopAtMillis > 0 && System.currentTimeMillis() >= stopAtMillis)
+            stop();
+    }
+
+    /**
+     * Drop anything left over so we don't hold on to types and levels from the old server
+     */
+    @SubscribeEvent
+    public void onServerStopped(ServerStoppedEvent event) {
+        stop();
+        reset();
+    }
+
+    /*******************************************************************************************************************
+     * Reporting                                                                                                       *
+     *******************************************************************************************************************/
+
+    /**
+     * Builds a readable report, types sorted by total tick time and the slowest single ticks
+     *
+     * @param limit Max entries per section, 0 for all
+     * @return The report lines
+     */
+    public List<String> buildReport(int limit) {
+        List<String> lines = new ArrayList<>();
+        long end = enabled ? System.currentTimeMillis() : stopTime;
+        double seconds = Math.max(1, end - startTime) / 1000.0;
+        lines.add(String.format("Nucleus tick profile over %.1fs (%s)", seconds, enabled ? "recording" : "stopped"));
+
+        lines.add("By block entity type:");
+        var entries = new ArrayList<>(typeStats.entrySet());
+        entries.sort(Comparator.comparingLong(
+                (Map.Entry<BlockEntityType<?>, TypeStats> entry) -> entry.getValue().totalNanos).reversed());
+        if (entries.isEmpty())
+            lines.add("  none");
+
+        int count = 0;
+        for (var entry : entries) {
+            if (limit > 0 && count++ >= limit)
+                break;
+
+            TypeStats stats = entry.getValue();
+            lines.add(String.format("  %s: %d calls (%.1f/s), %.3f ms total (%.3f ms/s), p50 %.1f us, p99 %.1f us, max %.1f us",
+                    BuiltInRegistries.BLOCK_ENTITY_TYPE.getKey(entry.getKey()),
+                    stats.calls, stats.calls / seconds,
+                    stats.totalNanos / 1_000_000.0, stats.totalNanos / 1_000_000.0 / seconds,
+                    getPercentile(stats, 0.5) / 1000.0, getPercentile(stats, 0.99) / 1000.0,
+                    stats.maxNanos / 1000.0));
+        }
+
+        lines.add("Slowest ticks:");
+        List<SlowTick> slowest = new ArrayList<>(slowestTicks);
+        slowest.sort(Comparator.comparingLong(SlowTick::nanos).reversed());
+        if (slowest.isEmpty())
+            lines.add("  none");
+
+        count = 0;
+        for (SlowTick slowTick : slowest) {
+            if (limit > 0 && count++ >= limit)
+                break;
+
+            lines.add(String.format("  %s at %d %d %d in %s: %.1f us",
+                    BuiltInRegistries.BLOCK_ENTITY_TYPE.getKey(slowTick.type()),
+                    slowTick.pos().getX(), slowTick.pos().getY(), slowTick.pos().getZ(),
+                    slowTick.dimension().location(), slowTick.nanos() / 1000.0));
+        }
+        return lines;
+    }
+}
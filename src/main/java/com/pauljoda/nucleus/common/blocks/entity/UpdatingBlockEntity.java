@@ -1,16 +1,22 @@
 package com.pauljoda.nucleus.common.blocks.entity;
 
+import com.pauljoda.nucleus.network.InitialSyncStreamer;
+import com.pauljoda.nucleus.util.TagUtils;
+import it.unimi.dsi.fastutil.HashCommon;
 import net.minecraft.core.BlockPos;
 import net.minecraft.nbt.CompoundTag;
 import net.minecraft.network.Connection;
 import net.minecraft.network.protocol.game.ClientboundBlockEntityDataPacket;
 import net.minecraft.world.level.Level;
 import net.minecraft.world.level.block.entity.BlockEntity;
+import net.minecraft.world.level.block.entity.BlockEntityTicker;
 import net.minecraft.world.level.block.entity.BlockEntityType;
 import net.minecraft.world.level.block.state.BlockState;
 
 import javax.annotation.Nonnull;
 import javax.annotation.Nullable;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
 
 /**
  * This file was created for Nucleus - Java
@@ -24,8 +30,52 @@ import javax.annotation.Nullable;
  */
 public class UpdatingBlockEntity extends BlockEntity {
 
+    // Class created for each type, learned from the constructor. Object when a type creates more than one class
+    private static final Map<BlockEntityType<?>, Class<?>> TYPE_CLASSES = new ConcurrentHashMap<>();
+
+    // Which tick methods each class overrides, the base ones do nothing
+    private static final ClassValue<TickMethods> TICK_METHODS = new ClassValue<>() {
+        @Override
+        protected TickMethods computeValue(Class<?> blockEntityClass) {
+            return new TickMethods(overrides(blockEntityClass, "onClientTick"),
+                    overrides(blockEntityClass, "onServerTick") ||
+                            overrides(blockEntityClass, "onServerTick", int.class));
+        }
+    };
+
+    // Tickers that call straight into the block entity they are given
+    private static final BlockEntityTicker<BlockEntity> CLIENT_TICKER =
+            (level, pos, state, blockEntity) -> ((UpdatingBlockEntity) blockEntity).onClientTick();
+    private static final BlockEntityTicker<BlockEntity> SERVER_TICKER =
+            (level, pos, state, blockEntity) -> ((UpdatingBlockEntity) blockEntity).tickServer(level);
+
+    // Marks an update tag that only holds the changes since the last one
+    protected static final String DELTA_NBT_TAG = "nucleus:delta";
+
+    // Delta updates, last tag sent on the server and last full tag known on the client
+    @Nullable
+    private CompoundTag lastSentUpdateTag;
+    @Nullable
+    private CompoundTag lastReceivedUpdateTag;
+
+    // Update tag shared by every player that needs it, valid until we change
+    @Nullable
+    private CompoundTag cachedUpdateTag;
+    private long cachedUpdateTagTick = -1;
+
+    // Sleeping skips our server tick until woken or the wake tick is reached
+    private boolean sleeping = false;
+    private long wakeTick = Long.MAX_VALUE;
+
+    // Game time of our last server tick, to tell how many ticks passed since
+    private long lastServerTick = -1;
+
     public UpdatingBlockEntity(BlockEntityType<?> tileEntityTypeIn, BlockPos pos, BlockState state) {
         super(tileEntityTypeIn, pos, state);
+
+        Class<?> previous = TYPE_CLASSES.putIfAbsent(tileEntityTypeIn, getClass());
+        if (previous != null && previous != getClass())
+            TYPE_CLASSES.put(tileEntityTypeIn, Object.class);
     }
 
     /*******************************************************************************************************************
@@ -45,13 +95,201 @@ public class UpdatingBlockEntity extends BlockEntity {
     }
 
     /**
-     * Call to mark this block for update in the world
+     * Called only on the server side tick with the ticks passed since our last one, more than one when using a
+     * {@link #getTickInterval()} or after sleeping. Override to scale work by the time that passed, by default calls
+     * {@link #onServerTick()}
+     *
+     * @param elapsedTicks Ticks since our last server tick
+     */
+    public void onServerTick(int elapsedTicks) {
+        onServerTick();
+    }
+
+    /**
+     * Override to server tick only every few ticks. Instances are spread over the interval by their position, so a
+     * thousand machines ticking every 20 ticks run about 50 per tick instead of all on the same one
+     *
+     * @return Ticks between server ticks, 1 for every tick
+     */
+    public int getTickInterval() {
+        return 1;
+    }
+
+    /**
+     * Defer non urgent work, like recipe checks or cache rebuilds, to the {@link WorkScheduler}. It runs at the end of
+     * the level tick within the per level budget, possibly on a later tick. Dropped if we are removed before
+     *
+     * @param work The work to run
+     */
+    public void scheduleWork(Runnable work) {
+        WorkScheduler.INSTANCE.submit(this, work);
+    }
+
+    /**
+     * Stop server ticking until {@link #wake()} is called. Changes to our inventory, tanks or energy made through
+     * their handlers, neighbor updates and players opening our menu wake us, so idle machines can sleep until they
+     * have something to do. Code writing our contents directly, skipping those handlers, should call wake itself
+     */
+    public void sleep() {
+        sleeping = true;
+        wakeTick = Long.MAX_VALUE;
+    }
+
+    /**
+     * Stop server ticking for a number of ticks, or until woken earlier
+     *
+     * @param ticks How many ticks to sleep
+     */
+    public void sleepFor(int ticks) {
+        if (getLevel() == null)
+            return;
+
+        sleeping = true;
+        wakeTick = getLevel().getGameTime() + ticks;
+    }
+
+    /**
+     * Resume server ticking, does nothing if we are awake
+     */
+    public void wake() {
+        sleeping = false;
+    }
+
+    /**
+     * Checks if we are sleeping
+     *
+     * @return True if our server tick is being skipped
+     */
+    public boolean isSleeping() {
+        return sleeping;
+    }
+
+    /**
+     * Runs our server tick unless we are sleeping, timed by the {@link TickProfiler} while it records
+     *
+     * @param level Our level
+     */
+    private void tickServer(Level level) {
+        long time = level.getGameTime();
+        if (sleeping) {
+            if (time < wakeTick)
+                return;
+            sleeping = false;
+        }
+
+        // Our phase comes from our position so instances of the same type don't all tick together
+        int interval = getTickInterval();
+        if (interval > 1 && Math.floorMod(time + HashCommon.mix(getBlockPos().asLong()), interval) != 0)
+            return;
+
+        int elapsed = lastServerTick < 0 ? 1 : (int) Math.min(time - lastServerTick, Integer.MAX_VALUE);
+        lastServerTick = time;
+        if (TickProfiler.INSTANCE.isEnabled()) {
+            long start = System.nanoTime();
+            onServerTick(elapsed);
+            TickProfiler.INSTANCE.record(this, System.nanoTime() - start);
+        } else
+            onServerTick(elapsed);
+    }
+
+    /**
+     * Override to send only the keys that changed since the last update packet instead of the whole tag. Useful
+     * for block entities with large inventories or tanks that update often
+     *
+     * @return True to send delta updates
+     */
+    protected boolean useDeltaUpdates() {
+        return false;
+    }
+
+    /**
+     * Override to keep heavy data out of the chunk packet. The chunk only carries {@link #buildRenderUpdateTag()},
+     * the full tag is streamed afterwards by the {@link InitialSyncStreamer} under a per player budget, closest
+     * blocks first. Useful for block entities with large inventories or tanks
+     *
+     * @return True to stream the initial sync
+     */
+    public boolean useStreamedInitialSync() {
+        return false;
+    }
+
+    /**
+     * Builds the tag sent in the chunk packet when using streamed initial sync, only add what is needed to render
+     * the block right away
+     *
+     * @return The minimal update tag
+     */
+    protected CompoundTag buildRenderUpdateTag() {
+        return super.getUpdateTag();
+    }
+
+    /**
+     * Builds the full tag sent to the client, override this instead of {@link #getUpdateTag()} to add data
+     *
+     * @return The full update tag
+     */
+    protected CompoundTag buildUpdateTag() {
+        CompoundTag tag = super.getUpdateTag();
+        saveAdditional(tag);
+        return tag;
+    }
+
+    /**
+     * Override if our saved data can change without calling {@link #setChanged()} or {@link #markForUpdate(int)}, the
+     * cached update tag is then rebuilt at most once per tick instead of once per change
+     *
+     * @return True to expire the cached update tag every tick
+     */
+    protected boolean expireUpdateTagEachTick() {
+        return false;
+    }
+
+    /**
+     * Get the update tag, only built once per change. Many players loading our chunk share one serialization
+     * <p>
+     * The cache is only dropped by {@link #setChanged()}, {@link #markForUpdate(int)} and {@link #load}. Saved data
+     * that changes without one of those calls, like a synced field written directly, is served stale until the next
+     * one unless {@link #expireUpdateTagEachTick()} is overridden
+     * <p>
+     * The tag is shared, it must not be modified. Copy it before handing it to anything outside Nucleus, a packet on
+     * the integrated server reaches the client without being serialized
+     *
+     * @return The full update tag
+     */
+    public CompoundTag getCachedUpdateTag() {
+        long tick = getLevel() != null ? getLevel().getGameTime() : -1;
+        if (cachedUpdateTag == null || (expireUpdateTagEachTick() && cachedUpdateTagTick != tick)) {
+            cachedUpdateTag = buildUpdateTag();
+            cachedUpdateTagTick = tick;
+        }
+        return cachedUpdateTag;
+    }
+
+    /**
+     * Drop the cached update tag, the next update builds a new one
+     */
+    protected void invalidateUpdateTag() {
+        cachedUpdateTag = null;
+    }
+
+    /**
+     * Call to mark this block for update in the world. On the server the update is sent once at the end of the level
+     * tick by the {@link BlockUpdateBatcher}, so calling this many times in a tick costs one update
      *
      * @param flags 6 to avoid re-render, 3 to force client changes
      */
-    @SuppressWarnings("ConstantConditions")
     public void markForUpdate(int flags) {
-        getLevel().sendBlockUpdated(getBlockPos(), getLevel().getBlockState(getBlockPos()), getLevel().getBlockState(getBlockPos()), flags);
+        if (getLevel() == null)
+            return;
+
+        invalidateUpdateTag();
+        if (!getLevel().isClientSide) {
+            BlockUpdateBatcher.INSTANCE.markForUpdate(this, flags);
+            return;
+        }
+
+        BlockState state = getLevel().getBlockState(getBlockPos());
+        getLevel().sendBlockUpdated(getBlockPos(), state, state, flags);
         setChanged();
     }
 
@@ -59,34 +297,115 @@ public class UpdatingBlockEntity extends BlockEntity {
      * BlockEntity                                                                                                     *
      *******************************************************************************************************************/
 
+    /**
+     * Ticks any updating block entity, used when we can't tell which class a type creates
+     */
     public static void tick(Level level, BlockPos pos, BlockState state, BlockEntity blockEntity) {
-        if (level.getBlockEntity(pos) instanceof UpdatingBlockEntity updatingEntity) {
+        if (blockEntity instanceof UpdatingBlockEntity updatingEntity) {
             if (level.isClientSide)
                 updatingEntity.onClientTick();
             else
-                updatingEntity.onServerTick();
+                updatingEntity.tickServer(level);
         }
     }
 
     /**
-     * We want the update tag to take in outside info
+     * Get the ticker for a block entity type. Sides where the class does not override its tick method get no ticker
+     * at all, the others a ticker that calls the method directly
+     *
+     * @param level The level the block entity is in
+     * @param type  The block entity type
+     * @return The ticker, null if there is nothing to tick
+     */
+    @Nullable
+    @SuppressWarnings("unchecked")
+    public static <T extends BlockEntity> BlockEntityTicker<T> createTicker(Level level, BlockEntityType<T> type) {
+        // The block entity is always created before its ticker, so the class is known unless the type mixes classes
+        Class<?> blockEntityClass = TYPE_CLASSES.get(type);
+        if (blockEntityClass == null || blockEntityClass == Object.class)
+            return UpdatingBlockEntity::tick;
+
+        TickMethods methods = TICK_METHODS.get(blockEntityClass);
+        if (level.isClientSide)
+            return methods.client() ? (BlockEntityTicker<T>) CLIENT_TICKER : null;
+        return methods.server() ? (BlockEntityTicker<T>) SERVER_TICKER : null;
+    }
+
+    /**
+     * Checks if the class overrides one of our tick methods
+     *
+     * @param blockEntityClass The class to check
+     * @param methodName       The tick method
+     * @param parameterTypes   The parameters of the method
+     * @return True if a subclass declares the method
+     */
+    private static boolean overrides(Class<?> blockEntityClass, String methodName, Class<?>... parameterTypes) {
+        try {
+            return blockEntityClass.getMethod(methodName, parameterTypes).getDeclaringClass() !=
+                    UpdatingBlockEntity.class;
+        } catch (NoSuchMethodException e) {
+            return true;
+        }
+    }
+
+    /**
+     * The tick methods a class overrides
+     *
+     * @param client True if it ticks on the client
+     * @param server True if it ticks on the server
+     */
+    private record TickMethods(boolean client, boolean server) {
+    }
+
+    /**
+     * Anything that changes our saved data calls this, so drop the cached update tag
+     */
+    @Override
+    public void setChanged() {
+        invalidateUpdateTag();
+        super.setChanged();
+    }
+
+    /**
+     * Loaded data replaces what the cached update tag was built from
+     */
+    @Override
+    public void load(CompoundTag tag) {
+        invalidateUpdateTag();
+        super.load(tag);
+    }
+
+    /**
+     * We want the update tag to take in outside info, override {@link #buildUpdateTag()} to add data. Only the render
+     * tag when streaming the initial sync. Callers may modify the tag, so they get a copy of the cached one
      *
      * @return Our tag
      */
     @Nonnull
     @Override
     public CompoundTag getUpdateTag() {
-        CompoundTag tag = super.getUpdateTag();
-        saveAdditional(tag);
-        return tag;
+        // Someone is getting the full tag, likely a new player, so the next update has to be full for everyone
+        lastSentUpdateTag = null;
+        return useStreamedInitialSync() ? buildRenderUpdateTag() : getCachedUpdateTag().copy();
     }
 
     /**
-     * Cause tile to read new info
+     * Cause tile to read new info, applying the changes to our last known tag if only a delta was sent
      */
     @Override
     public void onDataPacket(Connection net, ClientboundBlockEntityDataPacket packet) {
-        load(packet.getTag());
+        CompoundTag tag = packet.getTag();
+        if (tag == null)
+            return;
+
+        if (tag.getBoolean(DELTA_NBT_TAG)) {
+            if (lastReceivedUpdateTag == null)
+                lastReceivedUpdateTag = new CompoundTag();
+            TagUtils.applyDiff(lastReceivedUpdateTag, tag);
+            lastReceivedUpdateTag.remove(DELTA_NBT_TAG);
+            load(lastReceivedUpdateTag.copy());
+        } else
+            handleUpdateTag(tag);
     }
 
     /**
@@ -97,17 +416,35 @@ public class UpdatingBlockEntity extends BlockEntity {
      */
     @Override
     public void handleUpdateTag(CompoundTag tag) {
+        if (useDeltaUpdates())
+            lastReceivedUpdateTag = tag.copy();
         load(tag);
     }
 
     /**
-     * Case data packet to send our info
+     * Case data packet to send our info, only the changes since the last packet when using delta updates
+     *
+     * @return The packet, null if nothing changed
      */
     @Nullable
     @Override
     public ClientboundBlockEntityDataPacket getUpdatePacket() {
-        CompoundTag nbtTag = new CompoundTag();
-        saveAdditional(nbtTag);
-        return ClientboundBlockEntityDataPacket.create(this, entity -> this.getUpdateTag());
+        // Packets are copied, on the integrated server the client gets the same instance
+        CompoundTag tag = getCachedUpdateTag();
+        if (!useDeltaUpdates())
+            return ClientboundBlockEntityDataPacket.create(this, entity -> tag.copy());
+
+        CompoundTag previous = lastSentUpdateTag;
+        lastSentUpdateTag = tag;
+        if (previous == null)
+            return ClientboundBlockEntityDataPacket.create(this, entity -> tag.copy());
+
+        // The diff shares child tags with the cached tag
+        CompoundTag delta = TagUtils.diff(previous, tag);
+        if (delta.isEmpty())
+            return null;
+
+        delta.putBoolean(DELTA_NBT_TAG, true);
+        return ClientboundBlockEntityDataPacket.create(this, entity -> delta.copy());
     }
 }
@@ -0,0 +1,123 @@
+package com.pauljoda.nucleus.common.blocks.entity;
+
+import com.pauljoda.nucleus.Config;
+import com.pauljoda.nucleus.Nucleus;
+import it.unimi.dsi.fastutil.objects.Reference2ObjectOpenHashMap;
+import net.minecraft.world.level.Level;
+import net.minecraft.world.level.LevelAccessor;
+import net.neoforged.bus.api.EventPriority;
+import net.neoforged.bus.api.SubscribeEvent;
+import net.neoforged.neoforge.event.TickEvent;
+import net.neoforged.neoforge.event.level.LevelEvent;
+import net.neoforged.neoforge.event.server.ServerStoppedEvent;
+
+import java.util.ArrayDeque;
+import java.util.Map;
+
+/**
+ * Runs non urgent work submitted by block entities, such as recipe checks or cache rebuilds, once their level has
+ * finished ticking.
+ * <p>
+ * Each level drains its queue in submission order until {@link Config#workBudgetMillis} is spent, and whatever is
+ * left carries over to the next tick. Many machines waking at once, for example after a chunk loads, then spread
+ * their work over a few ticks instead of spiking one.
+ */
+public class WorkScheduler {
+    /**
+     * The singleton instance of this class.
+     */
+    public static final WorkScheduler INSTANCE = new WorkScheduler();
+
+    // Work waiting to run, per level
+    private final Map<Level, ArrayDeque<WorkItem>> queueByLevel = new Reference2ObjectOpenHashMap<>();
+
+    /**
+     * A piece of work and the block entity it belongs to
+     *
+     * @param owner The block entity, the work is dropped if it is removed first
+     * @param work  The work to run
+     */
+    private record WorkItem(UpdatingBlockEntity owner, Runnable work) {
+    }
+
+    /**
+     * Queue work to run at the end of a level tick, when the budget allows. Only call on the server
+     *
+     * @param owner The block entity submitting the work
+     * @param work  The work to run
+     */
+    public void submit(UpdatingBlockEntity owner, Runnable work) {
+        Level level = owner.getLevel();
+        if (level == null || level.isClientSide)
+            return;
+
+        ArrayDeque<WorkItem> queue = queueByLevel.get(level);
+        if (queue == null) {
+            queue = new ArrayDeque<>();
+            queueByLevel.put(level, queue);
+        }
+        queue.add(new WorkItem(owner, work));
+    }
+
+    /**
+     * Get how much work is waiting in a level
+     *
+     * @param level The level
+     * @return The number of queued items
+     */
+    public int getQueuedWork(Level level) {
+        ArrayDeque<WorkItem> queue = queueByLevel.get(level);
+        return queue != null ? queue.size() : 0;
+    }
+
+    /**
+     * Runs queued work of the level within the budget. At least one item runs each tick so the queue always moves,
+     * and work submitted while draining waits for the next tick. Runs before the {@link BlockUpdateBatcher} so updates
+     * marked by the work go out the same tick
+     */
+    @SubscribeEvent(priority = EventPriority.HIGH)
+    public void onLevelTick(TickEvent.LevelTickEvent event) {
+        if (event.phase != TickEvent.Phase.END || event.level.isClientSide)
+            return;
+
+        ArrayDeque<WorkItem> queue = queueByLevel.get(event.level);
+        if (queue == null || queue.isEmpty())
+            return;
+
+        long start = System.nanoTime();
+        long budget = (long) (Config.workBudgetMillis * 1_000_000);
+        int available = queue.size();
+        for (int i = 0; i < available; i++) {
+            if (i > 0 && System.nanoTime() - start >= budget)
+                break;
+
+            WorkItem item = queue.poll();
+            if (item.owner().isRemoved() || item.owner().getLevel() != event.level)
+                continue;
+
+            try {
+                item.work().run();
+            } catch (RuntimeException e) {
+                Nucleus.LOGGER.error("Scheduled work failed for block entity at " + item.owner().getBlockPos(), e);
+            }
+        }
+    }
+
+    /**
+     * Drop work of a level that is going away
+     */
+    @SubscribeEvent
+    public void onLevelUnload(LevelEvent.Unload event) {
+        LevelAccessor level = event.getLevel();
+        if (level instanceof Level)
+            queueByLevel.remove(level);
+    }
+
+    /**
+     * Drop anything left over so we don't hold on to levels from the old server
+     */
+    @SubscribeEvent
+    public void onServerStopped(ServerStoppedEvent event) {
+        queueByLevel.clear();
+    }
+}
@@ -2,6 +2,7 @@ package com.pauljoda.nucleus.common.blocks.entity.energy;
 
 import com.pauljoda.nucleus.capabilities.energy.EnergyBank;
 import com.pauljoda.nucleus.common.blocks.entity.Syncable;
+import com.pauljoda.nucleus.common.blocks.entity.sync.SyncedFieldRegistry;
 import net.minecraft.core.BlockPos;
 import net.minecraft.nbt.CompoundTag;
 import net.minecraft.world.level.block.entity.BlockEntityType;
@@ -39,6 +40,7 @@ public abstract class EnergyHandler extends Syncable {
     public EnergyHandler(BlockEntityType<?> tileEntityTypeIn, BlockPos pos, BlockState state) {
         super(tileEntityTypeIn, pos, state);
         energyStorage = initializeEnergyStorage();
+        EnergySync.wakeOnChange(energyStorage, this);
     }
 
     /*******************************************************************************************************************
@@ -67,22 +69,17 @@ public abstract class EnergyHandler extends Syncable {
      *******************************************************************************************************************/
 
     /**
-     * This method is called on the server tick and is used to handle energy difference,
-     * update the client if there is a change in the difference, and store the current
-     * difference and energy for the next tick.
+     * This method is called on the server tick and is used to handle energy difference
+     * and store the current difference and energy for the next tick.
      */
 
     @Override
     public void onServerTick() {
         super.onServerTick();
 
-        // Handle Energy Difference
+        // Handle Energy Difference, synced to the client by the registered field
         currentDifference = energyStorage.getEnergyStored() - lastEnergy;
 
-        // Update client
-        if (currentDifference != lastDifference)
-            sendValueToClient(UPDATE_DIFFERENCE_ID, currentDifference);
-
         // Store for next round
         lastDifference = currentDifference;
         lastEnergy = energyStorage.getEnergyStored();
@@ -134,39 +131,14 @@ public abstract class EnergyHandler extends Syncable {
      *******************************************************************************************************************/
 
     /**
-     * Used to set the value of a field
-     *
-     * @param id    The field id
-     * @param value The value of the field
-     */
-    @Override
-    public void setVariable(int id, double value) {
-        switch (id) {
-            case UPDATE_ENERGY_ID:
-                energyStorage.setEnergy((int) value);
-                break;
-            case UPDATE_DIFFERENCE_ID:
-                currentDifference = (int) value;
-                break;
-            default:
-        }
-    }
-
-    /**
-     * Used to get the field on the server, this will fetch the server value and overwrite the current
+     * Registers the energy fields, see {@link EnergySync#registerFields}
      *
-     * @param id The field id
-     * @return The value on the server, now set to ourselves
+     * @param registry The registry to add fields to
      */
     @Override
-    public Double getVariable(int id) {
-        switch (id) {
-            case UPDATE_ENERGY_ID:
-                return (double) energyStorage.getEnergyStored();
-            case UPDATE_DIFFERENCE_ID:
-                return (double) currentDifference;
-            default:
-                return 0.0;
-        }
+    protected void registerSyncedFields(SyncedFieldRegistry registry) {
+        super.registerSyncedFields(registry);
+        EnergySync.registerFields(registry, energyStorage,
+                () -> currentDifference, value -> currentDifference = value);
     }
 }
@@ -0,0 +1,49 @@
+package com.pauljoda.nucleus.common.blocks.entity.energy;
+
+import com.pauljoda.nucleus.capabilities.energy.EnergyBank;
+import com.pauljoda.nucleus.common.blocks.entity.UpdatingBlockEntity;
+import com.pauljoda.nucleus.common.blocks.entity.sync.SyncedFieldRegistry;
+
+import java.util.function.IntConsumer;
+import java.util.function.IntSupplier;
+
+/**
+ * Energy wiring shared by the energy handlers. They extend different bases, so the synced fields and wake hook are
+ * set up here once instead of in each of them.
+ */
+public class EnergySync {
+
+    /**
+     * Wakes the block entity whenever the energy in the bank changes, so sleeping machines resume once powered or
+     * drained
+     *
+     * @param bank        The energy bank
+     * @param blockEntity The block entity owning it
+     */
+    public static void wakeOnChange(EnergyBank bank, UpdatingBlockEntity blockEntity) {
+        bank.setChangeListener(blockEntity::wake);
+    }
+
+    /**
+     * Registers the energy and energy difference to be synced to the client, the difference is only shown in the
+     * GUI so it is menu only. Both are throttled since they can change every tick, the final value is always sent.
+     * Energy is interpolated on the client so bars stay smooth between updates, the difference is only cosmetic
+     *
+     * @param registry         The registry to add fields to
+     * @param bank             The energy bank
+     * @param difference       Reads the energy difference of the last tick
+     * @param differenceSetter Writes a received energy difference
+     */
+    public static void registerFields(SyncedFieldRegistry registry, EnergyBank bank,
+                                      IntSupplier difference, IntConsumer differenceSetter) {
+        registry.register(EnergyHandler.UPDATE_ENERGY_ID,
+                        bank::getEnergyStored, value -> bank.setEnergy((int) value))
+                .minInterval(5)
+                .interpolated();
+        registry.register(EnergyHandler.UPDATE_DIFFERENCE_ID,
+                        difference::getAsInt, value -> differenceSetter.accept((int) value))
+                .menuOnly()
+                .minInterval(10)
+                .cosmetic();
+    }
+}
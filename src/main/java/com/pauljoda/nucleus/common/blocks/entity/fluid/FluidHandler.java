@@ -1,6 +1,8 @@
 package com.pauljoda.nucleus.common.blocks.entity.fluid;
 
 import com.pauljoda.nucleus.common.blocks.entity.Syncable;
+import com.pauljoda.nucleus.common.blocks.entity.sync.SentStacks;
+import com.pauljoda.nucleus.network.packets.clientbound.StackSyncPacket;
 import net.minecraft.core.BlockPos;
 import net.minecraft.core.Direction;
 import net.minecraft.nbt.CompoundTag;
@@ -72,10 +74,11 @@ public abstract class FluidHandler extends Syncable implements IFluidHandler {
      *******************************************************************************************************************/
 
     /**
-     * Called when something happens to the tank, you should mark the block for update here if a tile
+     * Called when something happens to the tank, you should mark the block for update here if a tile. By default
+     * handled by {@link #onStacksChanged()}
      */
     public void onTankChanged(FluidTank tank) {
-        markForUpdate(3);
+        onStacksChanged();
     }
 
     /**
@@ -126,6 +129,32 @@ public abstract class FluidHandler extends Syncable implements IFluidHandler {
         return this;
     }
 
+    /*******************************************************************************************************************
+     * Stack Sync                                                                                                      *
+     *******************************************************************************************************************/
+
+    /**
+     * Adds the tanks that changed since they were last sent
+     *
+     * @param builder The builder to add changes to
+     */
+    @Override
+    protected void collectStackChanges(StackSyncPacket.Builder builder) {
+        super.collectStackChanges(builder);
+        getSentStacks().addChangedFluids(builder, tanks);
+    }
+
+    /**
+     * Sets the tank contents sent by the server
+     *
+     * @param tank  The tank
+     * @param stack The new contents
+     */
+    @Override
+    public void receiveFluidStack(int tank, FluidStack stack) {
+        SentStacks.receiveFluid(tanks, tank, stack);
+    }
+
     /*******************************************************************************************************************
      * Tile Methods                                                                                                    *
      *******************************************************************************************************************/
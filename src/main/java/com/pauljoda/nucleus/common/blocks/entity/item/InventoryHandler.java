@@ -3,12 +3,15 @@ package com.pauljoda.nucleus.common.blocks.entity.item;
 import com.pauljoda.nucleus.capabilities.item.InventoryContents;
 import com.pauljoda.nucleus.capabilities.item.InventoryHolderCapability;
 import com.pauljoda.nucleus.common.blocks.entity.Syncable;
+import com.pauljoda.nucleus.common.blocks.entity.sync.SentStacks;
+import com.pauljoda.nucleus.network.packets.clientbound.StackSyncPacket;
 import net.minecraft.core.BlockPos;
 import net.minecraft.core.Direction;
 import net.minecraft.nbt.CompoundTag;
 import net.minecraft.world.item.ItemStack;
 import net.minecraft.world.level.block.entity.BlockEntityType;
 import net.minecraft.world.level.block.state.BlockState;
+import net.neoforged.neoforge.items.IItemHandler;
 import net.neoforged.neoforge.items.IItemHandlerModifiable;
 
 /**
@@ -63,12 +66,12 @@ public abstract class InventoryHandler extends Syncable {
      *******************************************************************************************************************/
 
     /**
-     * Retrieves the item capability of the inventory.
+     * Retrieves the item capability of the inventory. Changes made through it wake us in case we were sleeping
      *
      * @return The item capability of the inventory.
      */
     public IItemHandlerModifiable getItemCapability() {
-        return new InventoryHolderCapability(inventory) {
+        InventoryHolderCapability capability = new InventoryHolderCapability(inventory) {
             @Override
             protected int getInventorySize() {
                 return InventoryHandler.this.getInventorySize();
@@ -79,6 +82,7 @@ public abstract class InventoryHandler extends Syncable {
                 return InventoryHandler.this.isItemValidForSlot(index, stack);
             }
         };
+        return capability.addCallback((IItemHandler handler, int slot) -> wake());
     }
 
     /**
@@ -100,6 +104,32 @@ public abstract class InventoryHandler extends Syncable {
         return inventory;
     }
 
+    /*******************************************************************************************************************
+     * Stack Sync                                                                                                      *
+     *******************************************************************************************************************/
+
+    /**
+     * Adds the slots that changed since they were last sent
+     *
+     * @param builder The builder to add changes to
+     */
+    @Override
+    protected void collectStackChanges(StackSyncPacket.Builder builder) {
+        super.collectStackChanges(builder);
+        getSentStacks().addChangedItems(builder, inventory.inventory);
+    }
+
+    /**
+     * Sets the slot sent by the server
+     *
+     * @param slot  The slot
+     * @param stack The new contents
+     */
+    @Override
+    public void receiveItemStack(int slot, ItemStack stack) {
+        SentStacks.receiveItem(inventory.inventory, slot, stack);
+    }
+
     /*******************************************************************************************************************
      * TileEntity                                                                                                      *
      *******************************************************************************************************************/
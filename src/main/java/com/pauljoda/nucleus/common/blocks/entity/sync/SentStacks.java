@@ -0,0 +1,66 @@
+package com.pauljoda.nucleus.common.blocks.entity.sync;
+
+import com.pauljoda.nucleus.network.packets.clientbound.StackSyncPacket;
+import net.minecraft.world.item.ItemStack;
+import net.neoforged.neoforge.fluids.FluidStack;
+import net.neoforged.neoforge.fluids.capability.templates.FluidTank;
+
+import javax.annotation.Nullable;
+import java.util.List;
+
+/**
+ * The inventory slots and tanks a {@link com.pauljoda.nucleus.common.blocks.entity.Syncable} last sent with stack
+ * sync, and applying received stacks on the client. Shared by the inventory and fluid handlers so the snapshot logic
+ * lives in one place.
+ */
+public class SentStacks {
+    // Contents last sent to clients, null until the first snapshot
+    @Nullable
+    private ItemStack[] items;
+    @Nullable
+    private FluidStack[] fluids;
+
+    /**
+     * Adds the slots that changed since they were last sent
+     *
+     * @param builder   The builder to add changes to
+     * @param inventory The current contents
+     */
+    public void addChangedItems(StackSyncPacket.Builder builder, List<ItemStack> inventory) {
+        items = builder.addChangedItems(inventory, items);
+    }
+
+    /**
+     * Adds the tanks that changed since they were last sent
+     *
+     * @param builder The builder to add changes to
+     * @param tanks   The tanks
+     */
+    public void addChangedFluids(StackSyncPacket.Builder builder, FluidTank[] tanks) {
+        fluids = builder.addChangedFluids(tanks, fluids);
+    }
+
+    /**
+     * Sets a slot sent by the server, ignoring slots we do not have
+     *
+     * @param inventory The contents to set
+     * @param slot      The slot
+     * @param stack     The new contents
+     */
+    public static void receiveItem(List<ItemStack> inventory, int slot, ItemStack stack) {
+        if (slot >= 0 && slot < inventory.size())
+            inventory.set(slot, stack);
+    }
+
+    /**
+     * Sets a tank sent by the server, ignoring tanks we do not have
+     *
+     * @param tanks The tanks
+     * @param tank  The tank
+     * @param stack The new contents
+     */
+    public static void receiveFluid(FluidTank[] tanks, int tank, FluidStack stack) {
+        if (tanks != null && tank >= 0 && tank < tanks.length && tanks[tank] != null)
+            tanks[tank].setFluid(stack);
+    }
+}
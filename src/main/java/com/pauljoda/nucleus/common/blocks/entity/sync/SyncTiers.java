@@ -0,0 +1,179 @@
+package com.pauljoda.nucleus.common.blocks.entity.sync;
+
+import com.pauljoda.nucleus.Nucleus;
+import it.unimi.dsi.fastutil.objects.Reference2ObjectOpenHashMap;
+import net.minecraft.core.registries.BuiltInRegistries;
+import net.minecraft.resources.ResourceLocation;
+import net.minecraft.world.level.block.entity.BlockEntityType;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Distance tiers for syncing a {@link com.pauljoda.nucleus.common.blocks.entity.Syncable}. Each tier has a range and
+ * an interval, players within the range receive changes at most once per interval. Players outside every tier
+ * receive nothing and catch up on the current values once they come back in range.
+ * <p>
+ * Tiers can be registered per block entity type in code, and overridden in the config.
+ */
+public class SyncTiers {
+    /**
+     * Used by block entity types without tiers, full rate close by and reduced rate up to the old fixed radius
+     */
+    public static final SyncTiers DEFAULT = new SyncTiers().tier(16, 1).tier(25, 4);
+
+    // Registered in code during setup
+    private static final Map<BlockEntityType<?>, SyncTiers> REGISTERED = new Reference2ObjectOpenHashMap<>();
+
+    // Read from the config, config wins. The config loads before block entity types exist, so entries are matched to
+    // types on first use. Both maps are rebuilt and swapped in whole, the config can reload on another thread
+    private static volatile Map<ResourceLocation, SyncTiers> configuredById = Map.of();
+    private static volatile Map<BlockEntityType<?>, SyncTiers> configured = Map.of();
+    private static volatile boolean configResolved = true;
+
+    // Largest range of the tiers in use, players further than this from a block entity are never synced
+    private static volatile int largestRange = DEFAULT.getRange();
+
+    // Variables, sorted by range
+    private double[] rangesSqr = new double[0];
+    private int[] intervals = new int[0];
+    private int range = 0;
+
+    /**
+     * Adds a tier, call in order of increasing range
+     *
+     * @param range    Max distance in blocks
+     * @param interval Ticks between syncs within this range, 1 for every tick
+     * @return This, to enable chaining
+     */
+    public SyncTiers tier(int range, int interval) {
+        if (rangesSqr.length > 0 && range * (double) range <= rangesSqr[rangesSqr.length - 1])
+            throw new IllegalArgumentException("Sync tiers must be added in order of increasing range");
+
+        rangesSqr = Arrays.copyOf(rangesSqr, rangesSqr.length + 1);
+        intervals = Arrays.copyOf(intervals, intervals.length + 1);
+        rangesSqr[rangesSqr.length - 1] = range * (double) range;
+        intervals[intervals.length - 1] = Math.max(1, interval);
+        this.range = range;
+        return this;
+    }
+
+    /**
+     * Get the sync interval for a player at the given distance
+     *
+     * @param distanceSqr The squared distance to the player
+     * @return Ticks between syncs, 0 if out of range
+     */
+    public int getInterval(double distanceSqr) {
+        for (int i = 0; i < rangesSqr.length; i++)
+            if (distanceSqr < rangesSqr[i])
+                return intervals[i];
+        return 0;
+    }
+
+    /**
+     * Get the range of the outermost tier
+     *
+     * @return The range in blocks, 0 without tiers
+     */
+    public int getRange() {
+        return range;
+    }
+
+    /**
+     * Get the largest range of all tiers, registered, configured or default
+     *
+     * @return The range in blocks
+     */
+    public static int getLargestRange() {
+        return largestRange;
+    }
+
+    /*******************************************************************************************************************
+     * Registry                                                                                                        *
+     *******************************************************************************************************************/
+
+    /**
+     * Set the tiers of a block entity type, call during setup
+     *
+     * @param type  The block entity type
+     * @param tiers The tiers to use
+     */
+    public static void register(BlockEntityType<?> type, SyncTiers tiers) {
+        REGISTERED.put(type, tiers);
+        updateLargestRange();
+    }
+
+    /**
+     * Get the tiers of a block entity type
+     *
+     * @param type The block entity type
+     * @return The configured tiers, the registered ones, or the default
+     */
+    public static SyncTiers get(BlockEntityType<?> type) {
+        if (!configResolved)
+            resolveConfig();
+
+        SyncTiers tiers = configured.get(type);
+        if (tiers == null)
+            tiers = REGISTERED.getOrDefault(type, DEFAULT);
+        return tiers;
+    }
+
+    /**
+     * Reads the config overrides, each entry is "namespace:type=range:interval,range:interval"
+     *
+     * @param entries The config entries
+     */
+    public static void loadConfig(List<? extends String> entries) {
+        Map<ResourceLocation, SyncTiers> byId = new HashMap<>();
+        for (String entry : entries) {
+            try {
+                String[] parts = entry.split("=", 2);
+                SyncTiers tiers = new SyncTiers();
+                for (String tier : parts[1].split(",")) {
+                    String[] values = tier.split(":");
+                    tiers.tier(Integer.parseInt(values[0].trim()), Integer.parseInt(values[1].trim()));
+                }
+                byId.put(new ResourceLocation(parts[0].trim()), tiers);
+            } catch (RuntimeException e) {
+                Nucleus.LOGGER.warn("Ignoring invalid sync tiers: " + entry);
+            }
+        }
+        configuredById = Map.copyOf(byId);
+        configResolved = false;
+        updateLargestRange();
+    }
+
+    /**
+     * Matches the config entries to their block entity types
+     */
+    private static void resolveConfig() {
+        // Flagged first, so a reload while resolving is picked up on the next call
+        configResolved = true;
+        Map<BlockEntityType<?>, SyncTiers> byType = new Reference2ObjectOpenHashMap<>();
+        for (var entry : configuredById.entrySet()) {
+            BlockEntityType<?> type = BuiltInRegistries.BLOCK_ENTITY_TYPE.get(entry.getKey());
+            if (type != null)
+                byType.put(type, entry.getValue());
+            else
+                Nucleus.LOGGER.warn("Ignoring sync tiers for unknown block entity type: " + entry.getKey());
+        }
+        configured = Collections.unmodifiableMap(byType);
+    }
+
+    /**
+     * Recomputes the largest range from the tiers in use, so it also shrinks when the config does
+     */
+    private static void updateLargestRange() {
+        int range = DEFAULT.getRange();
+        for (SyncTiers tiers : REGISTERED.values())
+            range = Math.max(range, tiers.getRange());
+        for (SyncTiers tiers : configuredById.values())
+            range = Math.max(range, tiers.getRange());
+        largestRange = range;
+    }
+}
@@ -0,0 +1,300 @@
+package com.pauljoda.nucleus.common.blocks.entity.sync;
+
+import java.util.function.DoubleConsumer;
+import java.util.function.DoubleSupplier;
+
+/**
+ * A single value of a {@link com.pauljoda.nucleus.common.blocks.entity.Syncable} that is kept in sync with the
+ * client. Tracks the last value sent so unchanged values are never sent again.
+ * <p>
+ * Fields can be throttled with a minimum interval and change thresholds. Changes held back by either are still sent
+ * once the value settles, so the client always ends up with the final value.
+ * <p>
+ * Interpolated fields keep the last two samples received on the client with their server tick, so widgets can draw
+ * a smooth value between updates while the server only sends a few times a second.
+ */
+public class SyncedField {
+    // Variables
+    private final int id;
+    private final DoubleSupplier getter;
+    private final DoubleConsumer setter;
+
+    // Only sent to players with a menu open on the block
+    private boolean menuOnly = false;
+
+    // Clients may set this field through the serverbound sync packet
+    private boolean clientWritable = false;
+
+    // Cosmetic fields wait when a player's sync budget is used up, critical ones never do
+    private boolean cosmetic = false;
+
+    // Throttling, minimum ticks between sends and change needed before sending while the value is still moving
+    private int minInterval = 0;
+    private double epsilon = 0;
+    private double relativeEpsilon = 0;
+
+    // Last value sent to the clients, only valid once sent
+    private double lastSentValue;
+    private long lastSentTick;
+    private boolean hasBeenSent = false;
+
+    // Value read on the previous check, used to tell when the value settles
+    private double lastCheckedValue;
+    private boolean hasBeenChecked = false;
+
+    // Client side smoothing between received samples
+    private boolean interpolated = false;
+    private boolean extrapolated = false;
+
+    // Last two samples received on the client, with the server tick they were sent on
+    private double previousSample, latestSample;
+    private long previousSampleTick, latestSampleTick;
+    private boolean hasSample = false;
+
+    // What is drawn between samples, moves from the start value to the latest sample over the span
+    private double interpolationStart;
+    private double receivedTime;
+    private long interpolationSpan = 1;
+
+    /**
+     * Creates a synced field
+     *
+     * @param id     The field id, unique within the block entity
+     * @param getter Reads the current value
+     * @param setter Writes a received value
+     */
+    public SyncedField(int id, DoubleSupplier getter, DoubleConsumer setter) {
+        this.id = id;
+        this.getter = getter;
+        this.setter = setter;
+    }
+
+    /*******************************************************************************************************************
+     * SyncedField                                                                                                     *
+     *******************************************************************************************************************/
+
+    /**
+     * Only send this field to players that have a menu open on the block, use for values only shown in the GUI
+     *
+     * @return This field, to enable chaining
+     */
+    public SyncedField menuOnly() {
+        this.menuOnly = true;
+        return this;
+    }
+
+    /**
+     * Allow clients to set this field with {@link com.pauljoda.nucleus.common.blocks.entity.Syncable#sendValueToServer},
+     * only players near the block or with its menu open can. Values are not validated, clamp them in the setter
+     *
+     * @return This field, to enable chaining
+     */
+    public SyncedField clientWritable() {
+        this.clientWritable = true;
+        return this;
+    }
+
+    /**
+     * Mark this field as cosmetic, like animation progress. When a player has used up their sync budget for the
+     * tick it waits for the next tick, and only its newest value is sent. Fields are critical by default
+     *
+     * @return This field, to enable chaining
+     */
+    public SyncedField cosmetic() {
+        this.cosmetic = true;
+        return this;
+    }
+
+    /**
+     * Send this field at most once every given number of ticks
+     *
+     * @param ticks Minimum ticks between sends
+     * @return This field, to enable chaining
+     */
+    public SyncedField minInterval(int ticks) {
+        this.minInterval = Math.max(0, ticks);
+        return this;
+    }
+
+    /**
+     * Hold back changes smaller than the given amount while the value is still changing
+     *
+     * @param epsilon The absolute change needed
+     * @return This field, to enable chaining
+     */
+    public SyncedField epsilon(double epsilon) {
+        this.epsilon = Math.max(0, epsilon);
+        return this;
+    }
+
+    /**
+     * Hold back changes smaller than the given fraction of the last sent value while the value is still changing
+     *
+     * @param fraction The relative change needed, 0.01 for 1%
+     * @return This field, to enable chaining
+     */
+    public SyncedField relativeEpsilon(double fraction) {
+        this.relativeEpsilon = Math.max(0, fraction);
+        return this;
+    }
+
+    /**
+     * Smooth this field on the client between received values, read it with
+     * {@link #getInterpolatedValue(double)}. Pair with {@link #minInterval(int)} to send it less often
+     *
+     * @return This field, to enable chaining
+     */
+    public SyncedField interpolated() {
+        this.interpolated = true;
+        return this;
+    }
+
+    /**
+     * Interpolate this field and keep following its trend for up to one more interval once the latest value is
+     * reached, for values that move steadily like progress
+     *
+     * @return This field, to enable chaining
+     */
+    public SyncedField extrapolated() {
+        this.interpolated = true;
+        this.extrapolated = true;
+        return this;
+    }
+
+    /**
+     * Checks if the current value should be sent this tick, call once per tick
+     *
+     * @param currentValue The value read this tick
+     * @param tick         The current tick
+     * @return True if the value needs to be sent
+     */
+    public boolean shouldSend(double currentValue, long tick) {
+        boolean settled = hasBeenChecked && Double.compare(currentValue, lastCheckedValue) == 0;
+        lastCheckedValue = currentValue;
+        hasBeenChecked = true;
+
+        if (!hasBeenSent)
+            return true;
+        if (Double.compare(currentValue, lastSentValue) == 0)
+            return false;
+        if (tick - lastSentTick < minInterval)
+            return false;
+
+        // Small changes wait for the value to settle, then the final value goes out
+        return settled || !isWithinThreshold(currentValue);
+    }
+
+    /**
+     * Checks if the change from the last sent value is too small to send
+     *
+     * @param currentValue The value read this tick
+     * @return True if within the thresholds
+     */
+    private boolean isWithinThreshold(double currentValue) {
+        double threshold = Math.max(epsilon, Math.abs(lastSentValue) * relativeEpsilon);
+        return Math.abs(currentValue - lastSentValue) <= threshold;
+    }
+
+    /**
+     * Records the value as sent to the clients
+     *
+     * @param value The value that was sent
+     * @param tick  The tick it was sent on
+     */
+    public void markSent(double value, long tick) {
+        lastSentValue = value;
+        lastSentTick = tick;
+        hasBeenSent = true;
+    }
+
+    /**
+     * Forget what was last sent, the next check will send the current value again
+     */
+    public void reset() {
+        hasBeenSent = false;
+    }
+
+    /*******************************************************************************************************************
+     * Client Samples                                                                                                  *
+     *******************************************************************************************************************/
+
+    /**
+     * Records a value received on the client, the drawn value moves from where it is now to the new value over the
+     * time between the two samples, capped to the send interval so long pauses do not slow it down
+     *
+     * @param value      The value received
+     * @param serverTick The server tick it was sent on
+     * @param clientTime The client time it was received, in ticks
+     */
+    public void receiveSample(double value, long serverTick, double clientTime) {
+        if (!hasSample || serverTick <= latestSampleTick) {
+            // First sample or the server restarted, nothing to move from
+            previousSample = value;
+            previousSampleTick = serverTick - 1;
+            interpolationStart = value;
+        } else {
+            interpolationStart = getInterpolatedValue(clientTime);
+            previousSample = latestSample;
+            previousSampleTick = latestSampleTick;
+        }
+
+        latestSample = value;
+        latestSampleTick = serverTick;
+        receivedTime = clientTime;
+        interpolationSpan = Math.max(1, Math.min(latestSampleTick - previousSampleTick, Math.max(1, minInterval)));
+        hasSample = true;
+    }
+
+    /**
+     * Get the value to draw on the client
+     *
+     * @param clientTime The current client time in ticks, including the partial tick
+     * @return The smoothed value, or the current value if not interpolated or nothing was received yet
+     */
+    public double getInterpolatedValue(double clientTime) {
+        if (!interpolated || !hasSample)
+            return getValue();
+
+        double progress = Math.max(0, (clientTime - receivedTime) / interpolationSpan);
+        if (progress < 1)
+            return interpolationStart + (latestSample - interpolationStart) * progress;
+        if (!extrapolated)
+            return latestSample;
+
+        // Continue at the rate between the last two samples, for at most one more interval
+        double rate = (latestSample - previousSample) / (latestSampleTick - previousSampleTick);
+        return latestSample + rate * interpolationSpan * (Math.min(progress, 2) - 1);
+    }
+
+    /*******************************************************************************************************************
+     * Accessors/Mutators                                                                                              *
+     *******************************************************************************************************************/
+
+    public int getId() {
+        return id;
+    }
+
+    public double getValue() {
+        return getter.getAsDouble();
+    }
+
+    public void setValue(double value) {
+        setter.accept(value);
+    }
+
+    public boolean isMenuOnly() {
+        return menuOnly;
+    }
+
+    public boolean isInterpolated() {
+        return interpolated;
+    }
+
+    public boolean isClientWritable() {
+        return clientWritable;
+    }
+
+    public boolean isCosmetic() {
+        return cosmetic;
+    }
+}
@@ -0,0 +1,121 @@
+package com.pauljoda.nucleus.common.blocks.entity.sync;
+
+import com.pauljoda.nucleus.network.packets.clientbound.SyncBundlePacket;
+import it.unimi.dsi.fastutil.ints.Int2DoubleMap;
+import it.unimi.dsi.fastutil.ints.Int2DoubleMaps;
+import it.unimi.dsi.fastutil.ints.Int2ObjectLinkedOpenHashMap;
+import net.minecraft.core.BlockPos;
+
+import javax.annotation.Nullable;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.function.DoubleConsumer;
+import java.util.function.DoubleSupplier;
+import java.util.function.ObjDoubleConsumer;
+
+/**
+ * Holds the fields a {@link com.pauljoda.nucleus.common.blocks.entity.Syncable} declares for syncing. Fields are
+ * registered once and are then checked every server tick, only changed values are sent.
+ */
+public class SyncedFieldRegistry {
+    // Fields by id, kept in registration order
+    private final Int2ObjectLinkedOpenHashMap<SyncedField> fields = new Int2ObjectLinkedOpenHashMap<>();
+
+    /**
+     * Registers a field to be synced
+     *
+     * @param id     The field id, must be unique within the block entity
+     * @param getter Reads the current value
+     * @param setter Writes a received value
+     * @return The registered field
+     */
+    public SyncedField register(int id, DoubleSupplier getter, DoubleConsumer setter) {
+        if (fields.containsKey(id))
+            throw new IllegalArgumentException("Synced field id " + id + " is already registered");
+
+        SyncedField field = new SyncedField(id, getter, setter);
+        fields.put(id, field);
+        return field;
+    }
+
+    /**
+     * Get the field with the given id
+     *
+     * @param id The field id
+     * @return The field, null if none registered
+     */
+    @Nullable
+    public SyncedField get(int id) {
+        return fields.get(id);
+    }
+
+    /**
+     * Get all registered fields
+     *
+     * @return The fields, in registration order
+     */
+    public Collection<SyncedField> getFields() {
+        return fields.values();
+    }
+
+    /**
+     * Checks if anything has been registered
+     *
+     * @return True if no fields
+     */
+    public boolean isEmpty() {
+        return fields.isEmpty();
+    }
+
+    /**
+     * Passes every field whose value changed since it was last sent and is allowed through by its throttling to the
+     * consumer, the fields are marked as sent
+     *
+     * @param tick     The current tick
+     * @param consumer Receives each field to send and its value
+     */
+    public void collectChanged(long tick, ObjDoubleConsumer<SyncedField> consumer) {
+        for (SyncedField field : fields.values()) {
+            double value = field.getValue();
+            if (field.shouldSend(value, tick)) {
+                consumer.accept(field, value);
+                field.markSent(value, tick);
+            }
+        }
+    }
+
+    /**
+     * Builds the bundle entry for the critical or cosmetic values, fields not registered are critical
+     *
+     * @param blockPosition The position of the block entity
+     * @param pending       The values to send
+     * @param cosmetic      True to take the cosmetic values, false for the critical ones
+     * @return The entry holding the matching values, null if there are none
+     */
+    @Nullable
+    public SyncBundlePacket.Entry createEntry(BlockPos blockPosition, Int2DoubleMap pending, boolean cosmetic) {
+        if (pending.isEmpty())
+            return null;
+
+        int[] fieldIds = new int[pending.size()];
+        double[] values = new double[pending.size()];
+        int index = 0;
+        for (var entry : Int2DoubleMaps.fastIterable(pending)) {
+            SyncedField field = fields.get(entry.getIntKey());
+            if ((field != null && field.isCosmetic()) != cosmetic)
+                continue;
+
+            fieldIds[index] = entry.getIntKey();
+            values[index] = entry.getDoubleValue();
+            index++;
+        }
+
+        if (index == 0)
+            return null;
+        if (index < fieldIds.length) {
+            fieldIds = Arrays.copyOf(fieldIds, index);
+            values = Arrays.copyOf(values, index);
+        }
+        return new SyncBundlePacket.Entry(blockPosition, fieldIds, values);
+    }
+}
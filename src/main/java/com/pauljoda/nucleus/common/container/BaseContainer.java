@@ -24,13 +24,14 @@ import javax.annotation.Nullable;
  * @author Paul Davis - pauljoda
  * @since 2/13/2017
  */
-public abstract class BaseContainer extends AbstractContainerMenu {
+public abstract class BaseContainer extends AbstractContainerMenu implements IBlockBoundMenu {
     // Variables
     protected Inventory playerInventory;
     protected IItemHandler inventory;
     protected int inventorySize;
     protected ContainerLevelAccess access;
     protected Block blockType;
+    protected BlockPos blockPos;
 
 
     /**
@@ -52,6 +53,7 @@ public abstract class BaseContainer extends AbstractContainerMenu {
         if (level != null && pos != null && block != null) {
             access = ContainerLevelAccess.create(level, pos);
             this.blockType = block;
+            this.blockPos = pos;
         }
 
         this.playerInventory = playerInventory;
@@ -69,6 +71,17 @@ public abstract class BaseContainer extends AbstractContainerMenu {
         return inventorySize;
     }
 
+    /**
+     * Get the position of the block this container was opened on
+     *
+     * @return The block position, null if not bound to a block
+     */
+    @Nullable
+    @Override
+    public BlockPos getBoundBlockPos() {
+        return blockPos;
+    }
+
     /**
      * Adds the player offset with Y offset
      *
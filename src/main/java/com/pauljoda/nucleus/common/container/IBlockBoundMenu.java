@@ -0,0 +1,19 @@
+package com.pauljoda.nucleus.common.container;
+
+import net.minecraft.core.BlockPos;
+
+import javax.annotation.Nullable;
+
+/**
+ * A menu opened on a block, used to route menu only sync values to the players viewing it
+ */
+public interface IBlockBoundMenu {
+
+    /**
+     * Get the position of the block this menu was opened on
+     *
+     * @return The block position, null if not bound to a block
+     */
+    @Nullable
+    BlockPos getBoundBlockPos();
+}
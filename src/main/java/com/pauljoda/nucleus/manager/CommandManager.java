@@ -0,0 +1,31 @@
+package com.pauljoda.nucleus.manager;
+
+import com.pauljoda.nucleus.Nucleus;
+import com.pauljoda.nucleus.command.NetSimCommand;
+import com.pauljoda.nucleus.command.NetStatsCommand;
+import com.pauljoda.nucleus.command.TickProfileCommand;
+import net.minecraft.commands.Commands;
+import net.neoforged.bus.api.SubscribeEvent;
+import net.neoforged.fml.common.Mod;
+import net.neoforged.neoforge.event.RegisterCommandsEvent;
+
+/**
+ * Registers the /nucleus command and its sub commands
+ */
+@Mod.EventBusSubscriber(modid = Nucleus.MODID)
+public class CommandManager {
+
+    /**
+     * Registers the commands
+     *
+     * @param event The command registration event
+     */
+    @SubscribeEvent
+    public static void registerCommands(RegisterCommandsEvent event) {
+        event.getDispatcher().register(Commands.literal("nucleus")
+                .requires(source -> source.hasPermission(2))
+                .then(NetStatsCommand.register())
+                .then(NetSimCommand.register())
+                .then(TickProfileCommand.register()));
+    }
+}
@@ -1,6 +1,13 @@
 package com.pauljoda.nucleus.manager;
 
+import com.pauljoda.nucleus.common.blocks.entity.BlockUpdateBatcher;
+import com.pauljoda.nucleus.common.blocks.entity.TickProfiler;
+import com.pauljoda.nucleus.common.blocks.entity.WorkScheduler;
 import com.pauljoda.nucleus.event.CraftingEvents;
+import com.pauljoda.nucleus.network.InitialSyncStreamer;
+import com.pauljoda.nucleus.network.PacketRateLimiter;
+import com.pauljoda.nucleus.network.RegistryPalette;
+import com.pauljoda.nucleus.network.SyncOutbox;
 import com.pauljoda.nucleus.util.TimeUtils;
 import net.neoforged.neoforge.common.NeoForge;
 
@@ -11,6 +18,13 @@ public class EventManager {
     public static void init() {
         registerEvent(new TimeUtils());
         registerEvent(new CraftingEvents());
+        registerEvent(SyncOutbox.INSTANCE);
+        registerEvent(PacketRateLimiter.INSTANCE);
+        registerEvent(InitialSyncStreamer.INSTANCE);
+        registerEvent(WorkScheduler.INSTANCE);
+        registerEvent(BlockUpdateBatcher.INSTANCE);
+        registerEvent(RegistryPalette.INSTANCE);
+        registerEvent(TickProfiler.INSTANCE);
     }
 
     /**
@@ -4,7 +4,13 @@ import com.pauljoda.nucleus.Nucleus;
 import com.pauljoda.nucleus.network.packets.ClientBoundPacket;
 import com.pauljoda.nucleus.network.packets.ServerBoundPacket;
 import com.pauljoda.nucleus.network.packets.bidirectional.SyncableFieldPacket;
+import com.pauljoda.nucleus.network.packets.clientbound.BlockEntityTagPacket;
+import com.pauljoda.nucleus.network.packets.clientbound.StackSyncPacket;
+import com.pauljoda.nucleus.network.packets.clientbound.SyncBundlePacket;
+import com.pauljoda.nucleus.network.packets.clientbound.SyncableQueryResponsePacket;
+import com.pauljoda.nucleus.network.packets.serverbound.SyncableQueryPacket;
 import net.minecraft.network.FriendlyByteBuf;
+import net.minecraft.network.protocol.common.custom.CustomPacketPayload;
 import net.minecraft.resources.ResourceLocation;
 import net.neoforged.api.distmarker.Dist;
 import net.neoforged.bus.api.SubscribeEvent;
@@ -12,7 +18,12 @@ import net.neoforged.fml.common.Mod;
 import net.neoforged.neoforge.network.event.RegisterPayloadHandlerEvent;
 import net.neoforged.neoforge.network.registration.IPayloadRegistrar;
 
+import javax.annotation.Nullable;
+import java.util.Collections;
+import java.util.HashMap;
 import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
 
 /**
  * Manages the network communication for the Nucleus mod.
@@ -22,6 +33,18 @@ import java.util.Locale;
 @Mod.EventBusSubscriber(modid = Nucleus.MODID, bus = Mod.EventBusSubscriber.Bus.MOD)
 public class NetworkManager {
 
+    // Packet ids, resolved once per class instead of on every send
+    private static final ClassValue<ResourceLocation> PACKET_IDS = new ClassValue<>() {
+        @Override
+        protected ResourceLocation computeValue(Class<?> packetClass) {
+            return new ResourceLocation(Nucleus.MODID, packetClass.getSimpleName().toLowerCase(Locale.ROOT));
+        }
+    };
+
+    // Readers of every registered packet, used to decode packets outside the real connection
+    private static final Map<ResourceLocation, FriendlyByteBuf.Reader<? extends CustomPacketPayload>> PACKET_READERS =
+            new HashMap<>();
+
     /**
      * Initializes the NetworkManager.
      *
@@ -29,53 +52,113 @@ public class NetworkManager {
      */
     @SubscribeEvent
     public static void init(RegisterPayloadHandlerEvent event) {
-        var registrar = event.registrar(Nucleus.MODID);
+        registerPackets(event.registrar(Nucleus.MODID));
+    }
+
+    /**
+     * Records the readers of every packet without a running game, so packets can be decoded headless like in the
+     * network simulation check. Does nothing once packets are registered
+     */
+    public static void registerReaders() {
+        if (PACKET_READERS.isEmpty())
+            registerPackets(null);
+    }
 
+    /**
+     * Registers every packet
+     *
+     * @param registrar The registrar, null to only record the readers
+     */
+    private static void registerPackets(@Nullable IPayloadRegistrar registrar) {
         bidirectional(registrar, SyncableFieldPacket.class, SyncableFieldPacket::decode);
+        clientbound(registrar, SyncBundlePacket.class, SyncBundlePacket::decode);
+        clientbound(registrar, BlockEntityTagPacket.class, BlockEntityTagPacket::decode);
+        clientbound(registrar, StackSyncPacket.class, StackSyncPacket::decode);
+
+        // Request/response, answered only to the requester
+        serverbound(registrar, SyncableQueryPacket.class, SyncableQueryPacket::decode);
+        clientbound(registrar, SyncableQueryResponsePacket.class, SyncableQueryResponsePacket::decode);
     }
 
     /**
      * Processes a client-bound packet.
      *
-     * @param registrar   the registrar to register packet payload
+     * @param registrar   the registrar to register packet payload, null to only record the reader
      * @param packetClass the class of the packet
      * @param reader      the reader to read packet data
      * @param <T>         the type of the packet
      */
-    private static <T extends ClientBoundPacket> void clientbound(IPayloadRegistrar registrar, Class<T> packetClass,
+    private static <T extends ClientBoundPacket> void clientbound(@Nullable IPayloadRegistrar registrar,
+                                                                  Class<T> packetClass,
                                                                   FriendlyByteBuf.Reader<T> reader) {
-        var id = new ResourceLocation(Nucleus.MODID, packetClass.getSimpleName().toLowerCase(Locale.ROOT));
-        registrar.play(id, reader, builder -> builder.client(ClientBoundPacket::handleOnClient));
+        var id = getPacketId(packetClass);
+        PACKET_READERS.put(id, reader);
+        if (registrar != null)
+            registrar.play(id, reader, builder -> builder.client(ClientBoundPacket::handleOnClient));
     }
 
     /**
      * Processes a server-bound packet.
      *
-     * @param registrar   the registrar to register packet payload
+     * @param registrar   the registrar to register packet payload, null to only record the reader
      * @param packetClass the class of the packet
      * @param reader      the reader to read packet data
      * @param <T>         the type of the packet
      */
-    private static <T extends ServerBoundPacket> void serverbound(IPayloadRegistrar registrar, Class<T> packetClass,
+    private static <T extends ServerBoundPacket> void serverbound(@Nullable IPayloadRegistrar registrar,
+                                                                  Class<T> packetClass,
                                                                   FriendlyByteBuf.Reader<T> reader) {
-        var id = new ResourceLocation(Nucleus.MODID, packetClass.getSimpleName().toLowerCase(Locale.ROOT));
-        registrar.play(id, reader, builder -> builder.server(ServerBoundPacket::handleOnServer));
+        var id = getPacketId(packetClass);
+        PACKET_READERS.put(id, reader);
+        if (registrar != null)
+            registrar.play(id, reader, builder -> builder.server(ServerBoundPacket::handleOnServer));
     }
 
     /**
      * Processes a bidirectional packet.
      *
-     * @param registrar   the registrar to register packet payload
+     * @param registrar   the registrar to register packet payload, null to only record the reader
      * @param packetClass the class of the packet
      * @param reader      the reader to read packet data
      * @param <T>         the type of the packet
      */
-    private static <T extends ServerBoundPacket & ClientBoundPacket> void bidirectional(IPayloadRegistrar registrar,
-                                                                                        Class<T> packetClass, FriendlyByteBuf.Reader<T> reader) {
-        var id = new ResourceLocation(Nucleus.MODID, packetClass.getSimpleName().toLowerCase(Locale.ROOT));
-        registrar.play(id, reader, builder -> {
-            builder.client(ClientBoundPacket::handleOnClient);
-            builder.server(ServerBoundPacket::handleOnServer);
-        });
+    private static <T extends ServerBoundPacket & ClientBoundPacket> void bidirectional(
+            @Nullable IPayloadRegistrar registrar, Class<T> packetClass, FriendlyByteBuf.Reader<T> reader) {
+        var id = getPacketId(packetClass);
+        PACKET_READERS.put(id, reader);
+        if (registrar != null)
+            registrar.play(id, reader, builder -> {
+                builder.client(ClientBoundPacket::handleOnClient);
+                builder.server(ServerBoundPacket::handleOnServer);
+            });
+    }
+
+    /**
+     * Get the id of a packet class, the namespace is our mod id and the path the class name in lower case
+     *
+     * @param packetClass The packet class
+     * @return The cached id
+     */
+    public static ResourceLocation getPacketId(Class<?> packetClass) {
+        return PACKET_IDS.get(packetClass);
+    }
+
+    /**
+     * Get the reader of a registered packet
+     *
+     * @param id The packet id
+     * @return The reader, null if no packet is registered with the id
+     */
+    public static FriendlyByteBuf.Reader<? extends CustomPacketPayload> getReader(ResourceLocation id) {
+        return PACKET_READERS.get(id);
+    }
+
+    /**
+     * Get the ids of every registered packet
+     *
+     * @return The ids, empty until packets are registered
+     */
+    public static Set<ResourceLocation> getPacketIds() {
+        return Collections.unmodifiableSet(PACKET_READERS.keySet());
     }
-}
\ No newline at end of file
+}
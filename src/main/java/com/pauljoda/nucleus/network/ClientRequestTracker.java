@@ -0,0 +1,100 @@
+package com.pauljoda.nucleus.network;
+
+import it.unimi.dsi.fastutil.ints.Int2ObjectMap;
+import it.unimi.dsi.fastutil.ints.Int2ObjectOpenHashMap;
+import net.neoforged.bus.api.SubscribeEvent;
+import net.neoforged.neoforge.event.TickEvent;
+
+import java.util.Iterator;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeoutException;
+
+/**
+ * Client side half of the request/response packets. Each request gets a correlation id that the server echoes in its
+ * response, the matching future is completed when it arrives or failed once it times out.
+ * <p>
+ * Only used from the client main thread, requests are made there and responses are handled there.
+ */
+public class ClientRequestTracker {
+    /**
+     * The singleton instance of this class.
+     */
+    public static final ClientRequestTracker INSTANCE = new ClientRequestTracker();
+
+    // How long to wait for a response
+    public static final long DEFAULT_TIMEOUT_MILLIS = 5000;
+
+    // Variables
+    private final Int2ObjectMap<PendingRequest> pendingRequests = new Int2ObjectOpenHashMap<>();
+    private int nextRequestId = 0;
+
+    /**
+     * A request waiting for its response
+     *
+     * @param future   The future to complete
+     * @param deadline When to give up, in millis
+     */
+    private record PendingRequest(CompletableFuture<Double> future, long deadline) {
+    }
+
+    /**
+     * Creates a new request
+     *
+     * @param timeoutMillis How long to wait for the response
+     * @return The correlation id to send with the request
+     */
+    public int createRequest(long timeoutMillis) {
+        int requestId = nextRequestId++;
+        pendingRequests.put(requestId, new PendingRequest(new CompletableFuture<>(),
+                System.currentTimeMillis() + timeoutMillis));
+        return requestId;
+    }
+
+    /**
+     * Get the future of a request made with {@link #createRequest(long)}
+     *
+     * @param requestId The correlation id
+     * @return The future, completed with the value the server sent
+     */
+    public CompletableFuture<Double> getFuture(int requestId) {
+        PendingRequest request = pendingRequests.get(requestId);
+        return request != null ? request.future() : CompletableFuture.failedFuture(new IllegalStateException());
+    }
+
+    /**
+     * Completes a request with the response from the server, unknown ids are ignored as they already timed out
+     *
+     * @param requestId The correlation id
+     * @param success   False if the server refused the request
+     * @param value     The value sent
+     */
+    public void complete(int requestId, boolean success, double value) {
+        PendingRequest request = pendingRequests.remove(requestId);
+        if (request == null)
+            return;
+
+        if (success)
+            request.future().complete(value);
+        else
+            request.future().completeExceptionally(new IllegalStateException("Request " + requestId + " was refused"));
+    }
+
+    /**
+     * Fails the requests that waited too long
+     */
+    @SubscribeEvent
+    public void onClientTick(TickEvent.ClientTickEvent event) {
+        if (event.phase != TickEvent.Phase.END || pendingRequests.isEmpty())
+            return;
+
+        long now = System.currentTimeMillis();
+        Iterator<PendingRequest> iterator = pendingRequests.values().iterator();
+        while (iterator.hasNext()) {
+            PendingRequest request = iterator.next();
+            if (now >= request.deadline()) {
+                iterator.remove();
+                request.future().completeExceptionally(new TimeoutException("No response from the server"));
+            }
+        }
+    }
+}
@@ -0,0 +1,153 @@
+package com.pauljoda.nucleus.network;
+
+import com.pauljoda.nucleus.Config;
+import com.pauljoda.nucleus.common.blocks.entity.UpdatingBlockEntity;
+import com.pauljoda.nucleus.network.packets.clientbound.BlockEntityTagPacket;
+import it.unimi.dsi.fastutil.longs.LongArrayList;
+import it.unimi.dsi.fastutil.longs.LongLinkedOpenHashSet;
+import it.unimi.dsi.fastutil.objects.Reference2ObjectLinkedOpenHashMap;
+import net.minecraft.core.BlockPos;
+import net.minecraft.nbt.CompoundTag;
+import net.minecraft.server.level.ServerPlayer;
+import net.minecraft.server.network.ServerGamePacketListenerImpl;
+import net.minecraft.world.level.ChunkPos;
+import net.minecraft.world.level.block.entity.BlockEntity;
+import net.neoforged.bus.api.SubscribeEvent;
+import net.neoforged.neoforge.event.TickEvent;
+import net.neoforged.neoforge.event.entity.player.PlayerEvent;
+import net.neoforged.neoforge.event.level.ChunkWatchEvent;
+import net.neoforged.neoforge.event.server.ServerStoppedEvent;
+
+import java.util.Iterator;
+import java.util.Map;
+
+/**
+ * Streams the full update tag of block entities that use {@link UpdatingBlockEntity#useStreamedInitialSync()}.
+ * <p>
+ * Those block entities only put their render data in the chunk packet. Once a player starts watching the chunk they
+ * are queued here, and every tick each player receives the closest ones first until their byte budget is spent.
+ */
+public class InitialSyncStreamer {
+    /**
+     * The singleton instance of this class.
+     */
+    public static final InitialSyncStreamer INSTANCE = new InitialSyncStreamer();
+
+    // Positions waiting to be streamed, keyed by the connection listener since it survives respawns and the player
+    // object does not
+    private final Map<ServerGamePacketListenerImpl, LongLinkedOpenHashSet> pendingByPlayer =
+            new Reference2ObjectLinkedOpenHashMap<>();
+
+    /**
+     * Queue the streamed block entities in a chunk the player now sees
+     */
+    @SubscribeEvent
+    public void onChunkWatch(ChunkWatchEvent.Watch event) {
+        LongLinkedOpenHashSet pending = null;
+        for (BlockEntity blockEntity : event.getChunk().getBlockEntities().values()) {
+            if (blockEntity instanceof UpdatingBlockEntity updatingEntity && updatingEntity.useStreamedInitialSync()) {
+                if (pending == null) {
+                    pending = pendingByPlayer.get(event.getPlayer().connection);
+                    if (pending == null) {
+                        pending = new LongLinkedOpenHashSet();
+                        pendingByPlayer.put(event.getPlayer().connection, pending);
+                    }
+                }
+                pending.add(blockEntity.getBlockPos().asLong());
+            }
+        }
+    }
+
+    /**
+     * The player no longer sees the chunk, nothing in it needs streaming
+     */
+    @SubscribeEvent
+    public void onChunkUnWatch(ChunkWatchEvent.UnWatch event) {
+        LongLinkedOpenHashSet pending = pendingByPlayer.get(event.getPlayer().connection);
+        if (pending == null)
+            return;
+
+        ChunkPos chunkPos = event.getPos();
+        pending.removeIf((long pos) ->
+                BlockPos.getX(pos) >> 4 == chunkPos.x && BlockPos.getZ(pos) >> 4 == chunkPos.z);
+    }
+
+    /**
+     * Send each player the closest queued tags within their budget
+     */
+    @SubscribeEvent
+    public void onServerTick(TickEvent.ServerTickEvent event) {
+        if (event.phase != TickEvent.Phase.END || pendingByPlayer.isEmpty())
+            return;
+
+        Iterator<Map.Entry<ServerGamePacketListenerImpl, LongLinkedOpenHashSet>> iterator =
+                pendingByPlayer.entrySet().iterator();
+        while (iterator.hasNext()) {
+            var entry = iterator.next();
+            ServerPlayer player = entry.getKey().player;
+            if (player.hasDisconnected()) {
+                iterator.remove();
+                continue;
+            }
+
+            streamTo(player, entry.getValue());
+            if (entry.getValue().isEmpty())
+                iterator.remove();
+        }
+    }
+
+    /**
+     * Sends queued tags to the player, closest first
+     *
+     * @param player  The player
+     * @param pending Their queued positions, sent ones are removed
+     */
+    private void streamTo(ServerPlayer player, LongLinkedOpenHashSet pending) {
+        LongArrayList sorted = new LongArrayList(pending);
+        BlockPos playerPos = player.blockPosition();
+        sorted.sort((long a, long b) -> Long.compare(distanceSqr(playerPos, a), distanceSqr(playerPos, b)));
+
+        int budget = Config.initialSyncBytesPerTick;
+        for (int i = 0; i < sorted.size() && budget > 0; i++) {
+            long pos = sorted.getLong(i);
+            pending.remove(pos);
+
+            BlockPos blockPos = BlockPos.of(pos);
+            if (!player.serverLevel().isLoaded(blockPos) ||
+                    !(player.serverLevel().getBlockEntity(blockPos) instanceof UpdatingBlockEntity blockEntity))
+                continue;
+
+            // Sized from the shared tag, the packet gets a copy since the integrated server does not serialize it
+            CompoundTag tag = blockEntity.getCachedUpdateTag();
+            budget -= tag.sizeInBytes();
+            PacketManager.INSTANCE.sendTo(new BlockEntityTagPacket(blockPos, tag.copy()), player);
+        }
+    }
+
+    /**
+     * Squared distance from the player to a packed position
+     */
+    private static long distanceSqr(BlockPos playerPos, long pos) {
+        long x = BlockPos.getX(pos) - playerPos.getX();
+        long y = BlockPos.getY(pos) - playerPos.getY();
+        long z = BlockPos.getZ(pos) - playerPos.getZ();
+        return x * x + y * y + z * z;
+    }
+
+    /**
+     * Forget the player once they leave
+     */
+    @SubscribeEvent
+    public void onPlayerLoggedOut(PlayerEvent.PlayerLoggedOutEvent event) {
+        if (event.getEntity() instanceof ServerPlayer player)
+            pendingByPlayer.remove(player.connection);
+    }
+
+    /**
+     * Drop anything left over so we don't hold on to connections from the old server
+     */
+    @SubscribeEvent
+    public void onServerStopped(ServerStoppedEvent event) {
+        pendingByPlayer.clear();
+    }
+}
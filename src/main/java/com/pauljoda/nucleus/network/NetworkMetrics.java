@@ -0,0 +1,210 @@
+package com.pauljoda.nucleus.network;
+
+import io.netty.buffer.Unpooled;
+import net.minecraft.core.registries.BuiltInRegistries;
+import net.minecraft.network.FriendlyByteBuf;
+import net.minecraft.network.protocol.common.custom.CustomPacketPayload;
+import net.minecraft.world.level.block.entity.BlockEntityType;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Counts the packets, encoded bytes and handler time of Nucleus packets, broken down by packet class and by the
+ * block entity type that sent them.
+ * <p>
+ * Recording is off by default, when disabled every record call returns after a single flag check.
+ */
+public class NetworkMetrics {
+    /**
+     * The singleton instance of this class.
+     */
+    public static final NetworkMetrics INSTANCE = new NetworkMetrics();
+
+    // Variables
+    private volatile boolean enabled = false;
+    private volatile long startTime = System.currentTimeMillis();
+    private final Map<String, Counter> packetCounters = new ConcurrentHashMap<>();
+    private final Map<String, Counter> blockEntityCounters = new ConcurrentHashMap<>();
+
+    // Reused to measure packets, one per thread since both sides record
+    private static final int MAX_SCRATCH_CAPACITY = 64 * 1024;
+    private static final ThreadLocal<FriendlyByteBuf> SCRATCH_BUFFER =
+            ThreadLocal.withInitial(() -> new FriendlyByteBuf(Unpooled.buffer(256)));
+
+    /**
+     * Counters for one packet class or block entity type
+     */
+    public static class Counter {
+        public final LongAdder sentPackets = new LongAdder();
+        public final LongAdder sentBytes = new LongAdder();
+        public final LongAdder handledPackets = new LongAdder();
+        public final LongAdder handledBytes = new LongAdder();
+        public final LongAdder handlerNanos = new LongAdder();
+    }
+
+    /*******************************************************************************************************************
+     * Recording                                                                                                       *
+     *******************************************************************************************************************/
+
+    /**
+     * Records a packet leaving through the {@link PacketManager}
+     *
+     * @param packet The packet sent
+     */
+    public void recordSent(CustomPacketPayload packet) {
+        if (!enabled)
+            return;
+
+        Counter counter = getCounter(packetCounters, packet.getClass().getSimpleName());
+        counter.sentPackets.increment();
+        counter.sentBytes.add(getEncodedSize(packet));
+    }
+
+    /**
+     * Records sync data sent on behalf of a block entity
+     *
+     * @param type  The type of the block entity that sent it
+     * @param bytes The encoded size of the data
+     */
+    public void recordBlockEntitySent(BlockEntityType<?> type, int bytes) {
+        if (!enabled)
+            return;
+
+        Counter counter = getCounter(blockEntityCounters, String.valueOf(BuiltInRegistries.BLOCK_ENTITY_TYPE.getKey(type)));
+        counter.sentPackets.increment();
+        counter.sentBytes.add(bytes);
+    }
+
+    /**
+     * Get the start time to pass to {@link #recordHandled(CustomPacketPayload, long)}
+     *
+     * @return The current nano time, 0 when disabled
+     */
+    public long startTiming() {
+        return enabled ? System.nanoTime() : 0L;
+    }
+
+    /**
+     * Records a packet handled on this side
+     *
+     * @param packet    The packet handled
+     * @param startNano The value of {@link #startTiming()} before handling
+     */
+    public void recordHandled(CustomPacketPayload packet, long startNano) {
+        if (!enabled || startNano == 0L)
+            return;
+
+        long elapsed = System.nanoTime() - startNano;
+        Counter counter = getCounter(packetCounters, packet.getClass().getSimpleName());
+        counter.handledPackets.increment();
+        counter.handledBytes.add(getEncodedSize(packet));
+        counter.handlerNanos.add(elapsed);
+    }
+
+    /**
+     * Gets or creates the counter for the key
+     */
+    private static Counter getCounter(Map<String, Counter> counters, String key) {
+        return counters.computeIfAbsent(key, k -> new Counter());
+    }
+
+    /**
+     * Encodes the packet to find its size, only called while recording
+     *
+     * @param packet The packet to measure
+     * @return The size in bytes
+     */
+    private static int getEncodedSize(CustomPacketPayload packet) {
+        FriendlyByteBuf buf = SCRATCH_BUFFER.get();
+        buf.clear();
+        packet.write(buf);
+        int size = buf.readableBytes();
+
+        // Don't hold on to a buffer grown by one huge packet
+        if (buf.capacity() > MAX_SCRATCH_CAPACITY)
+            SCRATCH_BUFFER.remove();
+        return size;
+    }
+
+    /*******************************************************************************************************************
+     * Control                                                                                                         *
+     *******************************************************************************************************************/
+
+    /**
+     * Start or stop recording
+     *
+     * @param enabled True to record
+     */
+    public void setEnabled(boolean enabled) {
+        if (enabled && !this.enabled)
+            startTime = System.currentTimeMillis();
+        this.enabled = enabled;
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    /**
+     * Clears all counters
+     */
+    public void reset() {
+        packetCounters.clear();
+        blockEntityCounters.clear();
+        startTime = System.currentTimeMillis();
+    }
+
+    /*******************************************************************************************************************
+     * Reporting                                                                                                       *
+     *******************************************************************************************************************/
+
+    /**
+     * Builds a readable report of all counters, sorted by bytes
+     *
+     * @param limit Max entries per section, 0 for all
+     * @return The report lines
+     */
+    public List<String> buildReport(int limit) {
+        List<String> lines = new ArrayList<>();
+        double seconds = Math.max(1, System.currentTimeMillis() - startTime) / 1000.0;
+        lines.add(String.format("Nucleus network stats over %.1fs (%s)", seconds, enabled ? "recording" : "stopped"));
+
+        lines.add("By packet:");
+        appendSection(lines, packetCounters, limit, seconds);
+        lines.add("By block entity type:");
+        appendSection(lines, blockEntityCounters, limit, seconds);
+        return lines;
+    }
+
+    /**
+     * Adds one line per counter to the report
+     */
+    private static void appendSection(List<String> lines, Map<String, Counter> counters, int limit, double seconds) {
+        var entries = new ArrayList<>(counters.entrySet());
+        entries.sort(Comparator.comparingLong((Map.Entry<String, Counter> entry) ->
+                entry.getValue().sentBytes.sum() + entry.getValue().handledBytes.sum()).reversed());
+
+        if (entries.isEmpty())
+            lines.add("  none");
+
+        int count = 0;
+        for (var entry : entries) {
+            if (limit > 0 && count++ >= limit)
+                break;
+
+            Counter counter = entry.getValue();
+            long sentPackets = counter.sentPackets.sum();
+            long sentBytes = counter.sentBytes.sum();
+            long handledPackets = counter.handledPackets.sum();
+            lines.add(String.format("  %s: sent %d (%.1f/s, %d B, %.1f B/s), handled %d (%d B, %.3f ms total)",
+                    entry.getKey(),
+                    sentPackets, sentPackets / seconds, sentBytes, sentBytes / seconds,
+                    handledPackets, counter.handledBytes.sum(), counter.handlerNanos.sum() / 1_000_000.0));
+        }
+    }
+}
@@ -1,8 +1,12 @@
 package com.pauljoda.nucleus.network;
 
+import com.pauljoda.nucleus.Config;
 import com.pauljoda.nucleus.network.packets.ClientBoundPacket;
 import com.pauljoda.nucleus.network.packets.ServerBoundPacket;
+import com.pauljoda.nucleus.network.packets.clientbound.SyncBundlePacket;
+import it.unimi.dsi.fastutil.objects.Reference2ObjectLinkedOpenHashMap;
 import net.minecraft.server.level.ServerPlayer;
+import net.minecraft.server.network.ServerGamePacketListenerImpl;
 import net.neoforged.neoforge.network.PacketDistributor;
 import net.neoforged.neoforge.server.ServerLifecycleHooks;
 
@@ -10,6 +14,12 @@ import net.neoforged.neoforge.server.ServerLifecycleHooks;
  * This is a class for managing packets. It provides methods for sending packets to different targets
  * including all clients, a specific server, a specific player, or all players around a certain point.
  * It follows the singleton design pattern.
+ * <p>
+ * Sync values are not sent right away, they are bundled per player and sent as one {@link SyncBundlePacket} when
+ * {@link #flushSyncBundles()} is called at the end of the tick. Each player has a byte budget per tick, critical
+ * values always go out and cosmetic values wait when it is used up.
+ * <p>
+ * Every send is recorded in the {@link NetworkMetrics} while recording is enabled.
  */
 public class PacketManager {
     /**
@@ -17,12 +27,18 @@ public class PacketManager {
      */
     public static final PacketManager INSTANCE = new PacketManager();
 
+    // Sync values waiting to be bundled, per connection since respawns and dimension changes replace the player
+    private final Reference2ObjectLinkedOpenHashMap<ServerGamePacketListenerImpl, SyncBundleQueue> pendingSync =
+            new Reference2ObjectLinkedOpenHashMap<>();
+    private boolean hasPendingSync = false;
+
     /**
      * Send a packet to all clients.
      *
      * @param packet the packet to send
      */
     public void sendToAll(ClientBoundPacket packet) {
+        NetworkMetrics.INSTANCE.recordSent(packet);
         PacketDistributor.ALL.noArg().send(packet);
     }
 
@@ -33,6 +49,7 @@ public class PacketManager {
      * @param player  the player to send the packet to
      */
     public void sendTo(ClientBoundPacket message, ServerPlayer player) {
+        NetworkMetrics.INSTANCE.recordSent(message);
         player.connection.send(message);
     }
 
@@ -45,6 +62,7 @@ public class PacketManager {
     public void sendToAllAround(ClientBoundPacket message, PacketDistributor.TargetPoint point) {
         var server = ServerLifecycleHooks.getCurrentServer();
         if (server != null) {
+            NetworkMetrics.INSTANCE.recordSent(message);
             PacketDistributor.NEAR.with(point).send(message);
         }
     }
@@ -55,6 +73,64 @@ public class PacketManager {
      * @param message the packet to send
      */
     public void sendToServer(ServerBoundPacket message) {
+        NetworkMetrics.INSTANCE.recordSent(message);
         PacketDistributor.SERVER.noArg().send(message);
     }
-}
\ No newline at end of file
+
+    /**
+     * Queue sync values for a player, sent with everything else they receive this tick. Cosmetic values may wait for
+     * a later tick when the player's budget is used up, newer values for the same field replace waiting ones
+     *
+     * @param entry    The values to send
+     * @param player   The player to send them to
+     * @param cosmetic True if the values may wait
+     */
+    public void queueSync(SyncBundlePacket.Entry entry, ServerPlayer player, boolean cosmetic) {
+        SyncBundleQueue queue = pendingSync.get(player.connection);
+        if (queue == null) {
+            queue = new SyncBundleQueue();
+            pendingSync.put(player.connection, queue);
+        }
+
+        queue.add(entry, cosmetic);
+        hasPendingSync = true;
+    }
+
+    /**
+     * Sends one bundle to every player with queued sync values. Critical values always go, cosmetic values fill what
+     * is left of the player's budget, oldest first, and the rest wait. Queues are kept for the next tick, only the
+     * built packet is new since netty may still be encoding it after we return
+     */
+    public void flushSyncBundles() {
+        if (!hasPendingSync)
+            return;
+
+        long serverTick = ServerLifecycleHooks.getCurrentServer().getTickCount();
+        boolean stillPending = false;
+        var iterator = pendingSync.reference2ObjectEntrySet().fastIterator();
+        while (iterator.hasNext()) {
+            var pending = iterator.next();
+            // The listener always points at the current player of the connection
+            ServerPlayer player = pending.getKey().player;
+            if (player.hasDisconnected()) {
+                iterator.remove();
+                continue;
+            }
+
+            SyncBundleQueue queue = pending.getValue();
+            SyncBundlePacket bundle = queue.build(Config.syncBytesPerTick, serverTick);
+            if (bundle != null)
+                sendTo(bundle, player);
+            stillPending |= queue.hasDeferred();
+        }
+        hasPendingSync = stillPending;
+    }
+
+    /**
+     * Drops all queued sync values
+     */
+    public void clearSyncBundles() {
+        pendingSync.clear();
+        hasPendingSync = false;
+    }
+}
@@ -0,0 +1,98 @@
+package com.pauljoda.nucleus.network;
+
+import com.pauljoda.nucleus.Config;
+import com.pauljoda.nucleus.Nucleus;
+import it.unimi.dsi.fastutil.objects.Object2ObjectOpenHashMap;
+import net.minecraft.server.level.ServerPlayer;
+import net.neoforged.bus.api.SubscribeEvent;
+import net.neoforged.neoforge.event.entity.player.PlayerEvent;
+import net.neoforged.neoforge.event.server.ServerStoppedEvent;
+
+import java.util.Map;
+import java.util.UUID;
+
+/**
+ * Token bucket per player for serverbound packets that do work on the main thread.
+ * <p>
+ * Each player can send a burst of {@link Config#packetBurst} packets, then one packet per
+ * {@link Config#packetTicksPerToken} ticks. Packets over the limit are dropped before any block entity lookup happens.
+ * Drops are logged at most once a minute per player, with the number dropped since the last warning.
+ */
+public class PacketRateLimiter {
+    /**
+     * The singleton instance of this class.
+     */
+    public static final PacketRateLimiter INSTANCE = new PacketRateLimiter();
+
+    // Ticks between warnings about the same player
+    private static final int WARN_INTERVAL = 20 * 60;
+
+    // Buckets by player, only touched on the server thread
+    private final Map<UUID, Bucket> buckets = new Object2ObjectOpenHashMap<>();
+
+    /**
+     * The tokens left for one player
+     */
+    private static class Bucket {
+        private double tokens = Config.packetBurst;
+        private long lastRefillTick;
+        private long lastWarnTick = -WARN_INTERVAL;
+        private int dropped = 0;
+
+        private Bucket(long tick) {
+            this.lastRefillTick = tick;
+        }
+    }
+
+    /**
+     * Takes a token for the player
+     *
+     * @param player The player that sent the packet
+     * @return True if the packet may be handled, false if it should be dropped
+     */
+    public boolean tryAcquire(ServerPlayer player) {
+        long tick = player.server.getTickCount();
+        Bucket bucket = buckets.get(player.getUUID());
+        if (bucket == null) {
+            bucket = new Bucket(tick);
+            buckets.put(player.getUUID(), bucket);
+        }
+
+        if (tick > bucket.lastRefillTick) {
+            bucket.tokens = Math.min(Config.packetBurst,
+                    bucket.tokens + (tick - bucket.lastRefillTick) / Config.packetTicksPerToken);
+            bucket.lastRefillTick = tick;
+        }
+
+        if (bucket.tokens < 1) {
+            // A client that keeps spamming gets a packet through every refill, so don't warn on every drop
+            bucket.dropped++;
+            if (tick - bucket.lastWarnTick >= WARN_INTERVAL) {
+                Nucleus.LOGGER.warn("Dropped {} sync packets from {}, sent faster than allowed",
+                        bucket.dropped, player.getGameProfile().getName());
+                bucket.lastWarnTick = tick;
+                bucket.dropped = 0;
+            }
+            return false;
+        }
+
+        bucket.tokens -= 1;
+        return true;
+    }
+
+    /**
+     * Forget the player's bucket once they leave
+     */
+    @SubscribeEvent
+    public void onPlayerLoggedOut(PlayerEvent.PlayerLoggedOutEvent event) {
+        buckets.remove(event.getEntity().getUUID());
+    }
+
+    /**
+     * Clear all buckets with the server
+     */
+    @SubscribeEvent
+    public void onServerStopped(ServerStoppedEvent event) {
+        buckets.clear();
+    }
+}
@@ -0,0 +1,220 @@
+package com.pauljoda.nucleus.network;
+
+import io.netty.buffer.ByteBufInputStream;
+import io.netty.buffer.ByteBufOutputStream;
+import io.netty.buffer.Unpooled;
+import net.minecraft.nbt.CompoundTag;
+import net.minecraft.nbt.ListTag;
+import net.minecraft.nbt.NbtAccounter;
+import net.minecraft.nbt.NbtIo;
+import net.minecraft.network.FriendlyByteBuf;
+
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.util.zip.DataFormatException;
+import java.util.zip.Deflater;
+import java.util.zip.Inflater;
+
+/**
+ * Optional compression for large packet payloads.
+ * <p>
+ * Payloads start with a flag byte. Small payloads are written raw after it. Payloads over {@link #THRESHOLD} bytes
+ * are deflated with a preset dictionary of the NBT keys our block entities save, which helps most on small and
+ * medium tags where plain deflate has little history to work with.
+ */
+public class PayloadCompression {
+    // Payloads smaller than this stay raw, compressing them costs more than it saves
+    public static final int THRESHOLD = 256;
+
+    // Largest payload accepted when reading, guards against compressed bombs
+    private static final int MAX_SIZE = 2 * 1024 * 1024;
+
+    // Flags
+    private static final byte RAW = 0;
+    private static final byte DEFLATED = 1;
+
+    // Encoded NBT holding the keys we save most, deflate finds them as if they were earlier in the stream
+    private static final byte[] DICTIONARY = buildDictionary();
+
+    // Native zlib streams are costly to create, each thread keeps one and resets it after use. Payloads are written
+    // when packets are encoded on the netty I/O threads and read on the client's, so the streams must not be shared
+    private static final ThreadLocal<Deflater> DEFLATER = ThreadLocal.withInitial(() -> new Deflater(Deflater.BEST_SPEED));
+    private static final ThreadLocal<Inflater> INFLATER = ThreadLocal.withInitial(Inflater::new);
+
+    /*******************************************************************************************************************
+     * NBT                                                                                                             *
+     *******************************************************************************************************************/
+
+    /**
+     * Writes the tag, compressed if it is large
+     *
+     * @param buf The buffer to write to
+     * @param tag The tag to write
+     */
+    public static void writeNbt(FriendlyByteBuf buf, CompoundTag tag) {
+        writeBytes(buf, encodeNbt(tag));
+    }
+
+    /**
+     * Reads a tag written with {@link #writeNbt(FriendlyByteBuf, CompoundTag)}
+     *
+     * @param buf The buffer to read from
+     * @return The tag
+     */
+    public static CompoundTag readNbt(FriendlyByteBuf buf) {
+        byte[] data = readBytes(buf);
+        try (DataInputStream input = new DataInputStream(new ByteBufInputStream(Unpooled.wrappedBuffer(data), true))) {
+            return NbtIo.read(input, NbtAccounter.create(MAX_SIZE));
+        } catch (IOException e) {
+            throw new IllegalStateException("Failed to read NBT payload", e);
+        }
+    }
+
+    /**
+     * Encodes the tag to bytes
+     */
+    private static byte[] encodeNbt(CompoundTag tag) {
+        var out = Unpooled.buffer();
+        try (DataOutputStream output = new DataOutputStream(new ByteBufOutputStream(out))) {
+            NbtIo.write(tag, output);
+            byte[] data = new byte[out.readableBytes()];
+            out.readBytes(data);
+            return data;
+        } catch (IOException e) {
+            throw new IllegalStateException("Failed to write NBT payload", e);
+        } finally {
+            out.release();
+        }
+    }
+
+    /*******************************************************************************************************************
+     * Bytes                                                                                                           *
+     *******************************************************************************************************************/
+
+    /**
+     * Writes the flag and the payload, deflated if over the threshold and smaller for it
+     *
+     * @param buf  The buffer to write to
+     * @param data The payload
+     */
+    public static void writeBytes(FriendlyByteBuf buf, byte[] data) {
+        if (data.length >= THRESHOLD) {
+            byte[] compressed = deflate(data);
+            if (compressed.length < data.length) {
+                buf.writeByte(DEFLATED);
+                buf.writeVarInt(data.length);
+                buf.writeByteArray(compressed);
+                return;
+            }
+        }
+
+        buf.writeByte(RAW);
+        buf.writeByteArray(data);
+    }
+
+    /**
+     * Reads a payload written with {@link #writeBytes(FriendlyByteBuf, byte[])}
+     *
+     * @param buf The buffer to read from
+     * @return The payload
+     */
+    public static byte[] readBytes(FriendlyByteBuf buf) {
+        byte flag = buf.readByte();
+        if (flag == RAW)
+            return buf.readByteArray(MAX_SIZE);
+
+        int size = buf.readVarInt();
+        if (size < 0 || size > MAX_SIZE)
+            throw new IllegalStateException("Compressed payload too large: " + size);
+        return inflate(buf.readByteArray(MAX_SIZE), size);
+    }
+
+    /**
+     * Deflates with the dictionary, favouring speed since this runs on the netty I/O threads while encoding packets
+     */
+    private static byte[] deflate(byte[] data) {
+        Deflater deflater = DEFLATER.get();
+        try {
+            deflater.setDictionary(DICTIONARY);
+            deflater.setInput(data);
+            deflater.finish();
+
+            byte[] output = new byte[data.length];
+            int length = 0;
+            while (!deflater.finished() && length < output.length)
+                length += deflater.deflate(output, length, output.length - length);
+
+            // Did not fit in the original size, not worth sending compressed
+            if (!deflater.finished())
+                return data;
+
+            byte[] result = new byte[length];
+            System.arraycopy(output, 0, result, 0, length);
+            return result;
+        } finally {
+            deflater.reset();
+        }
+    }
+
+    /**
+     * Inflates with the dictionary
+     */
+    private static byte[] inflate(byte[] compressed, int size) {
+        Inflater inflater = INFLATER.get();
+        try {
+            inflater.setInput(compressed);
+            byte[] output = new byte[size];
+            int length = 0;
+            while (length < size) {
+                int read = inflater.inflate(output, length, size - length);
+                if (read == 0) {
+                    if (inflater.needsDictionary())
+                        inflater.setDictionary(DICTIONARY);
+                    else if (inflater.finished() || inflater.needsInput())
+                        break;
+                }
+                length += read;
+            }
+
+            if (length != size)
+                throw new IllegalStateException("Compressed payload was " + length + " bytes, expected " + size);
+            return output;
+        } catch (DataFormatException e) {
+            throw new IllegalStateException("Invalid compressed payload", e);
+        } finally {
+            inflater.reset();
+        }
+    }
+
+    /**
+     * Builds the dictionary from a sample of the tags we save. Deflate prefers matches near the end of the
+     * dictionary, so the most common keys go last
+     */
+    private static byte[] buildDictionary() {
+        CompoundTag fluid = new CompoundTag();
+        fluid.putByte("TankID", (byte) 0);
+        fluid.putString("FluidName", "minecraft:water");
+        fluid.putInt("Amount", 0);
+        ListTag tanks = new ListTag();
+        tanks.add(fluid);
+
+        CompoundTag item = new CompoundTag();
+        item.putByte("Slot", (byte) 0);
+        item.putString("id", "minecraft:air");
+        item.putByte("Count", (byte) 1);
+        item.put("tag", new CompoundTag());
+        ListTag items = new ListTag();
+        items.add(item);
+
+        CompoundTag sample = new CompoundTag();
+        sample.putInt("EnergyStored", 0);
+        sample.putInt("Capacity", 0);
+        sample.putInt("MaxExtract", 0);
+        sample.putInt("MaxInsert", 0);
+        sample.putInt("Size", 0);
+        sample.put("Tanks", tanks);
+        sample.put("Items", items);
+        return encodeNbt(sample);
+    }
+}
@@ -0,0 +1,184 @@
+package com.pauljoda.nucleus.network;
+
+import it.unimi.dsi.fastutil.objects.ObjectArrayList;
+import it.unimi.dsi.fastutil.objects.Reference2IntOpenHashMap;
+import it.unimi.dsi.fastutil.objects.Reference2ObjectOpenHashMap;
+import net.minecraft.core.registries.BuiltInRegistries;
+import net.minecraft.resources.ResourceLocation;
+import net.minecraft.server.level.ServerPlayer;
+import net.minecraft.server.network.ServerGamePacketListenerImpl;
+import net.minecraft.world.item.Item;
+import net.minecraft.world.item.Items;
+import net.minecraft.world.level.material.Fluid;
+import net.minecraft.world.level.material.Fluids;
+import net.neoforged.bus.api.SubscribeEvent;
+import net.neoforged.neoforge.event.entity.player.PlayerEvent;
+import net.neoforged.neoforge.event.server.ServerStoppedEvent;
+
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Small ids for items and fluids, assigned per connection the first time they are sent to a player.
+ * <p>
+ * The server keeps a palette for each connection. New entries are written by name in the packet that first uses
+ * them and the client adds them to its own palette in the same order, so both sides agree on the ids and later
+ * packets only carry the id. The first packet of a new palette tells the client to start over, so reconnecting or
+ * joining another server never mixes up ids.
+ */
+public class RegistryPalette {
+    /**
+     * The singleton instance of this class.
+     */
+    public static final RegistryPalette INSTANCE = new RegistryPalette();
+
+    // Server side, keyed by the connection listener since it survives respawns and the player object does not
+    private final Map<ServerGamePacketListenerImpl, Palette> serverPalettes = new Reference2ObjectOpenHashMap<>();
+
+    // Client side, the palette of our connection
+    private final List<Item> clientItems = new ObjectArrayList<>();
+    private final List<Fluid> clientFluids = new ObjectArrayList<>();
+
+    /*******************************************************************************************************************
+     * Server                                                                                                          *
+     *******************************************************************************************************************/
+
+    /**
+     * Get the palette of the player's connection, created on first use
+     *
+     * @param player The player
+     * @return Their palette
+     */
+    public Palette getPalette(ServerPlayer player) {
+        Palette palette = serverPalettes.get(player.connection);
+        if (palette == null) {
+            palette = new Palette();
+            serverPalettes.put(player.connection, palette);
+        }
+        return palette;
+    }
+
+    /**
+     * The ids known to one client
+     */
+    public static class Palette {
+        private final Reference2IntOpenHashMap<Item> items = new Reference2IntOpenHashMap<>();
+        private final Reference2IntOpenHashMap<Fluid> fluids = new Reference2IntOpenHashMap<>();
+        private boolean started = false;
+
+        private Palette() {
+            items.defaultReturnValue(-1);
+            fluids.defaultReturnValue(-1);
+        }
+
+        /**
+         * Checks if this is the first packet using the palette, the client has to clear its own
+         *
+         * @return True only the first time
+         */
+        public boolean start() {
+            boolean isNew = !started;
+            started = true;
+            return isNew;
+        }
+
+        /**
+         * Get the id of an item, assigning one if the client does not know it yet
+         *
+         * @param item     The item
+         * @param newItems Names of newly assigned items are added here, they must reach the client with the id
+         * @return The id
+         */
+        public int getItemId(Item item, List<ResourceLocation> newItems) {
+            int id = items.getInt(item);
+            if (id == -1) {
+                id = items.size();
+                items.put(item, id);
+                newItems.add(BuiltInRegistries.ITEM.getKey(item));
+            }
+            return id;
+        }
+
+        /**
+         * Get the id of a fluid, assigning one if the client does not know it yet
+         *
+         * @param fluid     The fluid
+         * @param newFluids Names of newly assigned fluids are added here, they must reach the client with the id
+         * @return The id
+         */
+        public int getFluidId(Fluid fluid, List<ResourceLocation> newFluids) {
+            int id = fluids.getInt(fluid);
+            if (id == -1) {
+                id = fluids.size();
+                fluids.put(fluid, id);
+                newFluids.add(BuiltInRegistries.FLUID.getKey(fluid));
+            }
+            return id;
+        }
+    }
+
+    /*******************************************************************************************************************
+     * Client                                                                                                          *
+     *******************************************************************************************************************/
+
+    /**
+     * Adds the entries sent by the server, must be called for every packet in the order they arrive
+     *
+     * @param reset     True to clear the palette first
+     * @param newItems  The newly assigned items, in id order
+     * @param newFluids The newly assigned fluids, in id order
+     */
+    public void receive(boolean reset, List<ResourceLocation> newItems, List<ResourceLocation> newFluids) {
+        if (reset) {
+            clientItems.clear();
+            clientFluids.clear();
+        }
+
+        // Unknown names still take their id so the ones after them line up
+        for (ResourceLocation name : newItems)
+            clientItems.add(BuiltInRegistries.ITEM.get(name));
+        for (ResourceLocation name : newFluids)
+            clientFluids.add(BuiltInRegistries.FLUID.get(name));
+    }
+
+    /**
+     * Get an item by its id on the client
+     *
+     * @param id The id
+     * @return The item, air if unknown
+     */
+    public Item getItem(int id) {
+        return id >= 0 && id < clientItems.size() ? clientItems.get(id) : Items.AIR;
+    }
+
+    /**
+     * Get a fluid by its id on the client
+     *
+     * @param id The id
+     * @return The fluid, empty if unknown
+     */
+    public Fluid getFluid(int id) {
+        return id >= 0 && id < clientFluids.size() ? clientFluids.get(id) : Fluids.EMPTY;
+    }
+
+    /*******************************************************************************************************************
+     * Events                                                                                                          *
+     *******************************************************************************************************************/
+
+    /**
+     * Forget the palette once the player leaves
+     */
+    @SubscribeEvent
+    public void onPlayerLoggedOut(PlayerEvent.PlayerLoggedOutEvent event) {
+        if (event.getEntity() instanceof ServerPlayer player)
+            serverPalettes.remove(player.connection);
+    }
+
+    /**
+     * Drop anything left over so we don't hold on to connections from the old server
+     */
+    @SubscribeEvent
+    public void onServerStopped(ServerStoppedEvent event) {
+        serverPalettes.clear();
+    }
+}
@@ -0,0 +1,109 @@
+package com.pauljoda.nucleus.network;
+
+import com.pauljoda.nucleus.network.packets.clientbound.SyncBundlePacket;
+import it.unimi.dsi.fastutil.ints.Int2DoubleLinkedOpenHashMap;
+import it.unimi.dsi.fastutil.ints.Int2DoubleMaps;
+import it.unimi.dsi.fastutil.longs.Long2ObjectLinkedOpenHashMap;
+import it.unimi.dsi.fastutil.longs.Long2ObjectMaps;
+import net.minecraft.core.BlockPos;
+
+import javax.annotation.Nullable;
+
+/**
+ * The sync values waiting for one player. Critical values always go out in the next bundle, cosmetic values fill
+ * what is left of the byte budget, oldest first, and the rest wait for a later tick.
+ * <p>
+ * Used by the {@link PacketManager} for every connection, and by the network simulation.
+ */
+public class SyncBundleQueue {
+    // Critical values for this tick, and their size
+    private final SyncBundlePacket.Builder builder = new SyncBundlePacket.Builder();
+    private int criticalBytes = 0;
+
+    // Cosmetic values by position, oldest first, only the newest value of each field is kept
+    private final Long2ObjectLinkedOpenHashMap<Int2DoubleLinkedOpenHashMap> deferredCosmetic =
+            new Long2ObjectLinkedOpenHashMap<>();
+
+    /**
+     * Queue values for the next bundle. Cosmetic values replace waiting values of the same fields
+     *
+     * @param entry    The values to send
+     * @param cosmetic True if the values may wait
+     */
+    public void add(SyncBundlePacket.Entry entry, boolean cosmetic) {
+        if (cosmetic)
+            deferCosmetic(entry);
+        else {
+            builder.add(entry);
+            criticalBytes += entry.getEncodedSize();
+        }
+    }
+
+    /**
+     * Builds the bundle for this tick, critical values first and then cosmetic values while the budget lasts. The
+     * queue is kept for the next tick, only the built packet is new
+     *
+     * @param budget     The bytes the player may receive this tick
+     * @param serverTick The current server tick
+     * @return The bundle, null if there is nothing to send
+     */
+    @Nullable
+    public SyncBundlePacket build(int budget, long serverTick) {
+        addCosmetic(budget - criticalBytes);
+        criticalBytes = 0;
+        return builder.isEmpty() ? null : builder.build(serverTick);
+    }
+
+    /**
+     * Checks if cosmetic values are still waiting for budget
+     *
+     * @return True if a later bundle has values to send
+     */
+    public boolean hasDeferred() {
+        return !deferredCosmetic.isEmpty();
+    }
+
+    /**
+     * Adds cosmetic values to the waiting list, replacing older values of the same fields
+     */
+    private void deferCosmetic(SyncBundlePacket.Entry entry) {
+        long pos = entry.blockPosition().asLong();
+        Int2DoubleLinkedOpenHashMap values = deferredCosmetic.get(pos);
+        if (values == null) {
+            values = new Int2DoubleLinkedOpenHashMap();
+            deferredCosmetic.put(pos, values);
+        }
+        for (int i = 0; i < entry.fieldIds().length; i++)
+            values.put(entry.fieldIds()[i], entry.values()[i]);
+    }
+
+    /**
+     * Moves waiting cosmetic values into the bundle until the budget is spent
+     *
+     * @param budget The bytes left for this tick
+     */
+    private void addCosmetic(int budget) {
+        var iterator = Long2ObjectMaps.fastIterator(deferredCosmetic);
+        while (iterator.hasNext() && budget > 0) {
+            var waiting = iterator.next();
+            Int2DoubleLinkedOpenHashMap values = waiting.getValue();
+            int[] fieldIds = new int[values.size()];
+            double[] fieldValues = new double[values.size()];
+            int index = 0;
+            for (var value : Int2DoubleMaps.fastIterable(values)) {
+                fieldIds[index] = value.getIntKey();
+                fieldValues[index++] = value.getDoubleValue();
+            }
+
+            var entry = new SyncBundlePacket.Entry(BlockPos.of(waiting.getLongKey()), fieldIds, fieldValues);
+            int size = entry.getEncodedSize();
+            // One entry larger than the whole budget still goes out alone, or it would wait forever
+            if (size > budget && !builder.isEmpty())
+                break;
+
+            builder.add(entry);
+            budget -= size;
+            iterator.remove();
+        }
+    }
+}
@@ -0,0 +1,212 @@
+package com.pauljoda.nucleus.network;
+
+import com.pauljoda.nucleus.common.blocks.entity.Syncable;
+import com.pauljoda.nucleus.common.blocks.entity.UpdatingBlockEntity;
+import com.pauljoda.nucleus.common.blocks.entity.sync.SyncTiers;
+import com.pauljoda.nucleus.common.container.IBlockBoundMenu;
+import it.unimi.dsi.fastutil.longs.Long2ObjectOpenHashMap;
+import it.unimi.dsi.fastutil.objects.Reference2ObjectOpenHashMap;
+import it.unimi.dsi.fastutil.objects.ReferenceLinkedOpenHashSet;
+import net.minecraft.core.SectionPos;
+import net.minecraft.server.level.ServerLevel;
+import net.minecraft.server.level.ServerPlayer;
+import net.minecraft.world.level.ChunkPos;
+import net.minecraft.world.level.Level;
+import net.minecraft.world.level.block.entity.BlockEntity;
+import net.neoforged.bus.api.SubscribeEvent;
+import net.neoforged.neoforge.event.TickEvent;
+import net.neoforged.neoforge.event.entity.player.PlayerContainerEvent;
+import net.neoforged.neoforge.event.server.ServerStoppedEvent;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Collects the {@link Syncable} block entities that have values waiting to be sent to clients and flushes them once
+ * at the end of the server tick into the {@link PacketManager} bundles, so each player receives a single packet per
+ * tick no matter how many block entities or fields changed.
+ * <p>
+ * Syncables with registered fields are also watched here, their fields are checked for changes right before the
+ * flush, even while they sleep. Syncables with players behind on their distance tier are flushed again on later ticks,
+ * and every few ticks the syncables around each player are checked for players that came into range.
+ */
+public class SyncOutbox {
+    /**
+     * The singleton instance of this class.
+     */
+    public static final SyncOutbox INSTANCE = new SyncOutbox();
+
+    // Ticks between catch up flushes for players that moved into range
+    private static final int CATCH_UP_INTERVAL = 10;
+
+    // Block entities with pending values, in the order they were first marked this tick, and the set being flushed
+    private Set<Syncable> dirtySyncables = new ReferenceLinkedOpenHashSet<>();
+    private Set<Syncable> flushingSyncables = new ReferenceLinkedOpenHashSet<>();
+    private int tickCounter = 0;
+
+    // Block entities with registered fields to check every tick, and the same by level and chunk to find those near
+    // a player
+    private final Set<Syncable> watchedSyncables = new ReferenceLinkedOpenHashSet<>();
+    private final Map<Level, Long2ObjectOpenHashMap<List<Syncable>>> watchedByChunk =
+            new Reference2ObjectOpenHashMap<>();
+
+    /**
+     * Marks the syncable as having values waiting to be sent at the end of the tick
+     *
+     * @param syncable The block entity with pending values
+     */
+    public void markDirty(Syncable syncable) {
+        dirtySyncables.add(syncable);
+    }
+
+    /**
+     * Start checking the registered fields of the syncable every tick
+     *
+     * @param syncable The block entity to watch
+     */
+    public void watch(Syncable syncable) {
+        if (!watchedSyncables.add(syncable) || syncable.getLevel() == null)
+            return;
+
+        Long2ObjectOpenHashMap<List<Syncable>> byChunk = watchedByChunk.get(syncable.getLevel());
+        if (byChunk == null) {
+            byChunk = new Long2ObjectOpenHashMap<>();
+            watchedByChunk.put(syncable.getLevel(), byChunk);
+        }
+
+        long chunkPos = ChunkPos.asLong(syncable.getBlockPos());
+        List<Syncable> inChunk = byChunk.get(chunkPos);
+        if (inChunk == null) {
+            inChunk = new ArrayList<>();
+            byChunk.put(chunkPos, inChunk);
+        }
+        inChunk.add(syncable);
+    }
+
+    /**
+     * Stop checking the registered fields of the syncable
+     *
+     * @param syncable The block entity to stop watching
+     */
+    public void unwatch(Syncable syncable) {
+        if (watchedSyncables.remove(syncable))
+            removeFromChunk(syncable);
+    }
+
+    /**
+     * Removes the syncable from the chunk lookup
+     */
+    private void removeFromChunk(Syncable syncable) {
+        Long2ObjectOpenHashMap<List<Syncable>> byChunk = watchedByChunk.get(syncable.getLevel());
+        if (byChunk == null)
+            return;
+
+        long chunkPos = ChunkPos.asLong(syncable.getBlockPos());
+        List<Syncable> inChunk = byChunk.get(chunkPos);
+        if (inChunk != null && inChunk.remove(syncable) && inChunk.isEmpty()) {
+            byChunk.remove(chunkPos);
+            if (byChunk.isEmpty())
+                watchedByChunk.remove(syncable.getLevel());
+        }
+    }
+
+    /**
+     * Marks the watched syncables around each player that the player is missing values from, only the chunks within
+     * the largest tier range are looked at so the cost does not grow with the number of syncables
+     */
+    private void queueCatchUps() {
+        int chunkRadius = SectionPos.blockToSectionCoord(SyncTiers.getLargestRange()) + 1;
+        for (var levelEntry : watchedByChunk.entrySet()) {
+            if (!(levelEntry.getKey() instanceof ServerLevel serverLevel))
+                continue;
+
+            Long2ObjectOpenHashMap<List<Syncable>> byChunk = levelEntry.getValue();
+            for (ServerPlayer player : serverLevel.players()) {
+                ChunkPos center = player.chunkPosition();
+                for (int x = center.x - chunkRadius; x <= center.x + chunkRadius; x++) {
+                    for (int z = center.z - chunkRadius; z <= center.z + chunkRadius; z++) {
+                        List<Syncable> inChunk = byChunk.get(ChunkPos.asLong(x, z));
+                        if (inChunk == null)
+                            continue;
+
+                        for (Syncable syncable : inChunk) {
+                            if (!syncable.isRemoved() && syncable.needsCatchUp(player))
+                                dirtySyncables.add(syncable);
+                        }
+                    }
+                }
+            }
+        }
+    }
+
+    /**
+     * Queues changed fields and sends all pending values once the server has finished ticking
+     */
+    @SubscribeEvent
+    public void onServerTick(TickEvent.ServerTickEvent event) {
+        if (event.phase != TickEvent.Phase.END)
+            return;
+
+        Iterator<Syncable> watched = watchedSyncables.iterator();
+        while (watched.hasNext()) {
+            Syncable syncable = watched.next();
+            if (syncable.isRemoved()) {
+                watched.remove();
+                removeFromChunk(syncable);
+            } else
+                syncable.queueChangedFields();
+        }
+
+        // Every so often flush the syncables players walked into range of
+        if (++tickCounter % CATCH_UP_INTERVAL == 0)
+            queueCatchUps();
+
+        if (!dirtySyncables.isEmpty()) {
+            // Swap sets, syncables with players still behind go into the fresh set for the next tick
+            Set<Syncable> flushing = dirtySyncables;
+            dirtySyncables = flushingSyncables;
+            flushingSyncables = flushing;
+
+            for (Syncable syncable : flushing) {
+                if (syncable.flushValuesToClient())
+                    dirtySyncables.add(syncable);
+            }
+            flushing.clear();
+        }
+
+        PacketManager.INSTANCE.flushSyncBundles();
+    }
+
+    /**
+     * Menu only values are not sent while the menu is closed, catch the player up when they open it. Opening the
+     * menu also wakes the block entity
+     */
+    @SubscribeEvent
+    public void onContainerOpen(PlayerContainerEvent.Open event) {
+        if (!(event.getEntity() instanceof ServerPlayer player) ||
+                !(event.getContainer() instanceof IBlockBoundMenu menu) ||
+                menu.getBoundBlockPos() == null)
+            return;
+
+        BlockEntity blockEntity = player.level().getBlockEntity(menu.getBoundBlockPos());
+        if (blockEntity instanceof UpdatingBlockEntity updatingEntity)
+            updatingEntity.wake();
+        if (blockEntity instanceof Syncable syncable)
+            syncable.sendMenuFieldsTo(player);
+    }
+
+    /**
+     * Drop anything left over so we don't hold on to block entities from the old server
+     */
+    @SubscribeEvent
+    public void onServerStopped(ServerStoppedEvent event) {
+        dirtySyncables.clear();
+        flushingSyncables.clear();
+        watchedSyncables.clear();
+        watchedByChunk.clear();
+        PacketManager.INSTANCE.clearSyncBundles();
+    }
+}
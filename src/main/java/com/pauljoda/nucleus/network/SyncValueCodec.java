@@ -0,0 +1,159 @@
+package com.pauljoda.nucleus.network;
+
+import net.minecraft.network.FriendlyByteBuf;
+
+/**
+ * Compact wire encoding for synced field values.
+ * <p>
+ * Each field is written as a varint key holding the field id and a 3 bit value type, followed by the value in the
+ * smallest representation that keeps it exact. Most synced values are small integers, so a field usually costs two
+ * to four bytes instead of the twelve of a raw int id and double.
+ */
+public class SyncValueCodec {
+    // Value types, stored in the low bits of the key
+    private static final int TYPE_FALSE = 0;  // 0, no payload
+    private static final int TYPE_TRUE = 1;   // 1, no payload
+    private static final int TYPE_VARINT = 2; // Positive int
+    private static final int TYPE_ZIGZAG = 3; // Negative int
+    private static final int TYPE_LONG = 4;   // Whole number outside int range
+    private static final int TYPE_FLOAT = 5;  // Exact as a float
+    private static final int TYPE_DOUBLE = 6; // Anything else
+
+    private static final int TYPE_BITS = 3;
+    private static final int TYPE_MASK = (1 << TYPE_BITS) - 1;
+
+    // Whole numbers in this range convert to long and back without loss
+    private static final double LONG_RANGE = 0x1p62;
+
+    /*******************************************************************************************************************
+     * Encode                                                                                                          *
+     *******************************************************************************************************************/
+
+    /**
+     * Writes the field id and value using the smallest exact representation
+     *
+     * @param buf     The buffer to write to
+     * @param fieldId The field id
+     * @param value   The value
+     */
+    public static void writeField(FriendlyByteBuf buf, int fieldId, double value) {
+        int type = getType(value);
+        buf.writeVarInt((fieldId << TYPE_BITS) | type);
+        switch (type) {
+            case TYPE_VARINT -> buf.writeVarInt((int) value);
+            case TYPE_ZIGZAG -> {
+                int intValue = (int) value;
+                buf.writeVarInt((intValue << 1) ^ (intValue >> 31));
+            }
+            case TYPE_LONG -> {
+                long longValue = (long) value;
+                buf.writeVarLong((longValue << 1) ^ (longValue >> 63));
+            }
+            case TYPE_FLOAT -> buf.writeFloat((float) value);
+            case TYPE_DOUBLE -> buf.writeDouble(value);
+            default -> {
+            }
+        }
+    }
+
+    /**
+     * Get the number of bytes {@link #writeField(FriendlyByteBuf, int, double)} would write, without encoding
+     *
+     * @param fieldId The field id
+     * @param value   The value
+     * @return The encoded size in bytes
+     */
+    public static int getEncodedSize(int fieldId, double value) {
+        int type = getType(value);
+        int keySize = FriendlyByteBuf.getVarIntSize((fieldId << TYPE_BITS) | type);
+        return keySize + switch (type) {
+            case TYPE_VARINT -> FriendlyByteBuf.getVarIntSize((int) value);
+            case TYPE_ZIGZAG -> {
+                int intValue = (int) value;
+                yield FriendlyByteBuf.getVarIntSize((intValue << 1) ^ (intValue >> 31));
+            }
+            case TYPE_LONG -> {
+                long longValue = (long) value;
+                yield FriendlyByteBuf.getVarLongSize((longValue << 1) ^ (longValue >> 63));
+            }
+            case TYPE_FLOAT -> 4;
+            case TYPE_DOUBLE -> 8;
+            default -> 0;
+        };
+    }
+
+    /**
+     * Finds the smallest type that holds the value exactly
+     *
+     * @param value The value to write
+     * @return The value type
+     */
+    private static int getType(double value) {
+        if (Double.doubleToRawLongBits(value) == 0L)
+            return TYPE_FALSE;
+        if (value == 1.0)
+            return TYPE_TRUE;
+
+        if (Math.abs(value) < LONG_RANGE && value == Math.rint(value)) {
+            long longValue = (long) value;
+            if (longValue >= 0 && longValue <= Integer.MAX_VALUE)
+                return TYPE_VARINT;
+            if (longValue < 0 && longValue >= Integer.MIN_VALUE)
+                return TYPE_ZIGZAG;
+            return TYPE_LONG;
+        }
+
+        if ((float) value == value)
+            return TYPE_FLOAT;
+        return TYPE_DOUBLE;
+    }
+
+    /*******************************************************************************************************************
+     * Decode                                                                                                          *
+     *******************************************************************************************************************/
+
+    /**
+     * Reads the key of the next field, pass it to {@link #getFieldId(int)} and {@link #readValue(FriendlyByteBuf, int)}
+     *
+     * @param buf The buffer to read from
+     * @return The field key
+     */
+    public static int readKey(FriendlyByteBuf buf) {
+        return buf.readVarInt();
+    }
+
+    /**
+     * Get the field id out of a key
+     *
+     * @param key The key read
+     * @return The field id
+     */
+    public static int getFieldId(int key) {
+        return key >> TYPE_BITS;
+    }
+
+    /**
+     * Reads the value that follows the key
+     *
+     * @param buf The buffer to read from
+     * @param key The key read before the value
+     * @return The value
+     */
+    public static double readValue(FriendlyByteBuf buf, int key) {
+        return switch (key & TYPE_MASK) {
+            case TYPE_TRUE -> 1.0;
+            case TYPE_VARINT -> buf.readVarInt();
+            case TYPE_ZIGZAG -> {
+                int encoded = buf.readVarInt();
+                yield (encoded >>> 1) ^ -(encoded & 1);
+            }
+            case TYPE_LONG -> {
+                long encoded = buf.readVarLong();
+                yield (encoded >>> 1) ^ -(encoded & 1);
+            }
+            case TYPE_FLOAT -> buf.readFloat();
+            case TYPE_DOUBLE -> buf.readDouble();
+            default -> 0.0;
+        };
+    }
+}
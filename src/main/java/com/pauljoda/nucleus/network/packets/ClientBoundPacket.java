@@ -1,13 +1,12 @@
 package com.pauljoda.nucleus.network.packets;
 
-import com.pauljoda.nucleus.Nucleus;
+import com.pauljoda.nucleus.manager.NetworkManager;
+import com.pauljoda.nucleus.network.NetworkMetrics;
 import net.minecraft.network.protocol.common.custom.CustomPacketPayload;
 import net.minecraft.resources.ResourceLocation;
 import net.minecraft.world.entity.player.Player;
 import net.neoforged.neoforge.network.handling.PlayPayloadContext;
 
-import java.util.Locale;
-
 /**
  * Represents a packet sent from server to client.
  */
@@ -27,7 +26,7 @@ public interface ClientBoundPacket extends CustomPacketPayload {
      */
     @Override
     default ResourceLocation id() {
-        return new ResourceLocation(Nucleus.MODID, getClass().getSimpleName().toLowerCase(Locale.ROOT));
+        return NetworkManager.getPacketId(getClass());
     }
 
     /**
@@ -37,7 +36,11 @@ public interface ClientBoundPacket extends CustomPacketPayload {
      */
     default void handleOnClient(PlayPayloadContext context) {
         context.workHandler().execute(() -> {
-            context.player().ifPresent(this::handleOnClient);
+            context.player().ifPresent(player -> {
+                long start = NetworkMetrics.INSTANCE.startTiming();
+                handleOnClient(player);
+                NetworkMetrics.INSTANCE.recordHandled(this, start);
+            });
         });
     }
 }
\ No newline at end of file
@@ -1,13 +1,12 @@
 package com.pauljoda.nucleus.network.packets;
 
-import com.pauljoda.nucleus.Nucleus;
+import com.pauljoda.nucleus.manager.NetworkManager;
+import com.pauljoda.nucleus.network.NetworkMetrics;
 import net.minecraft.network.protocol.common.custom.CustomPacketPayload;
 import net.minecraft.resources.ResourceLocation;
 import net.minecraft.server.level.ServerPlayer;
 import net.neoforged.neoforge.network.handling.PlayPayloadContext;
 
-import java.util.Locale;
-
 /**
  * ServerBoundPacket Interface that handles packets on the server side.
  */
@@ -19,7 +18,17 @@ public interface ServerBoundPacket extends CustomPacketPayload {
      * @param player The server player to handle the packet for
      */
     void handleOnServer(ServerPlayer player);
-    
+
+    /**
+     * Returns the ID of the mod registering the packet.
+     *
+     * @return Resource location that includes the namespace (mod ID) and name (class simple name in lower case).
+     */
+    @Override
+    default ResourceLocation id() {
+        return NetworkManager.getPacketId(getClass());
+    }
+
     /**
      * Handle the packet on the server side with PlayPayloadContext.
      *
@@ -28,7 +37,9 @@ public interface ServerBoundPacket extends CustomPacketPayload {
     default void handleOnServer(PlayPayloadContext context) {
         context.workHandler().execute(() -> {
             if (context.player().orElse(null) instanceof ServerPlayer serverPlayer) {
+                long start = NetworkMetrics.INSTANCE.startTiming();
                 handleOnServer(serverPlayer);
+                NetworkMetrics.INSTANCE.recordHandled(this, start);
             }
         });
     }
@@ -2,14 +2,16 @@ package com.pauljoda.nucleus.network.packets.bidirectional;
 
 import com.pauljoda.nucleus.common.blocks.entity.Syncable;
 import com.pauljoda.nucleus.network.PacketManager;
+import com.pauljoda.nucleus.network.PacketRateLimiter;
+import com.pauljoda.nucleus.network.SyncValueCodec;
 import com.pauljoda.nucleus.network.packets.ClientBoundPacket;
 import com.pauljoda.nucleus.network.packets.ServerBoundPacket;
 import net.minecraft.core.BlockPos;
 import net.minecraft.network.FriendlyByteBuf;
+import net.minecraft.resources.ResourceLocation;
 import net.minecraft.server.level.ServerPlayer;
 import net.minecraft.world.entity.player.Player;
 import net.minecraft.world.level.Level;
-import net.neoforged.neoforge.network.PacketDistributor;
 
 /**
  * A packet that syncs a field between client and server.
@@ -23,25 +25,35 @@ public record SyncableFieldPacket(boolean returnValue, int fieldId, double value
 
     public static SyncableFieldPacket decode(FriendlyByteBuf buf) {
         var returnValue = buf.readBoolean();
-        var fieldID = buf.readInt();
-        var value = buf.readDouble();
+        var key = SyncValueCodec.readKey(buf);
+        var fieldID = SyncValueCodec.getFieldId(key);
+        var value = SyncValueCodec.readValue(buf, key);
         var blockPosition = BlockPos.of(buf.readLong());
         return new SyncableFieldPacket(returnValue, fieldID, value, blockPosition);
     }
 
     /**
-     * Write to buffer
+     * Write to buffer, the field uses the compact typed encoding
      *
-     * @param buf
+     * @param buf The buffer to write to
      */
     @Override
     public void write(FriendlyByteBuf buf) {
         buf.writeBoolean(returnValue);
-        buf.writeInt(fieldId);
-        buf.writeDouble(value);
+        SyncValueCodec.writeField(buf, fieldId, value);
         buf.writeLong(blockPosition.asLong());
     }
 
+    /**
+     * Both sides share the same cached id, picks one of the two matching defaults
+     *
+     * @return The packet id
+     */
+    @Override
+    public ResourceLocation id() {
+        return ClientBoundPacket.super.id();
+    }
+
     /*******************************************************************************************************************
      * Handle Packet                                                                                                   *
      *******************************************************************************************************************/
@@ -57,46 +69,45 @@ public record SyncableFieldPacket(boolean returnValue, int fieldId, double value
         Level level = player.level();
 
         // Safety check
-        if (blockPosition == null ||
-                level.getBlockEntity(blockPosition) == null ||
-                !(level.getBlockEntity(blockPosition) instanceof Syncable))
+        if (blockPosition == null || !(level.getBlockEntity(blockPosition) instanceof Syncable syncable))
             return;
 
         // If wanting to ping back server for whatever reason
         if (returnValue)
-            PacketManager.INSTANCE.sendToServer(new SyncableFieldPacket(false, fieldId,
-                    ((Syncable) level.getBlockEntity(blockPosition)).getVariable(fieldId), blockPosition));
+            PacketManager.INSTANCE.sendToServer(
+                    new SyncableFieldPacket(false, fieldId, syncable.getVariable(fieldId), blockPosition));
         else
-            ((Syncable) level.getBlockEntity(blockPosition)).setVariable(fieldId, value);
-
+            syncable.setVariable(fieldId, value);
     }
 
     /**
-     * Handles the packet on the server side.
+     * Handles the packet on the server side. Packets are rate limited per player and only accepted from players that
+     * can access the block, writes only for fields the block entity allows clients to set.
      *
      * @param player The server player that received the packet.
      */
     @Override
     public void handleOnServer(ServerPlayer player) {
+        if (!PacketRateLimiter.INSTANCE.tryAcquire(player))
+            return;
+
         Level level = player.level();
 
+        // Never load chunks for a client
+        if (blockPosition == null || !level.isLoaded(blockPosition))
+            return;
+
         // Safety check for non syncable tiles
-        if (level.getBlockEntity(blockPosition) == null ||
-                !(level.getBlockEntity(blockPosition) instanceof Syncable))
+        if (!(level.getBlockEntity(blockPosition) instanceof Syncable syncable) || !syncable.canPlayerAccess(player))
             return;
 
-        // If true, other client wanted all around to see value change
+        // Client wants the current value, reply only to them
         if (returnValue)
-            PacketManager.INSTANCE.sendToAllAround(
-                    new SyncableFieldPacket(false, fieldId,
-                            ((Syncable) level.getBlockEntity(blockPosition)).getVariable(fieldId), blockPosition),
-                    new PacketDistributor.TargetPoint(
-                            blockPosition.getX(),
-                            blockPosition.getY(),
-                            blockPosition.getZ(),
-                            25,
-                            level.dimension()));
-        else // On server update
-            ((Syncable) level.getBlockEntity(blockPosition)).setVariable(fieldId, value);
+            PacketManager.INSTANCE.sendTo(
+                    new SyncableFieldPacket(false, fieldId, syncable.getVariable(fieldId), blockPosition), player);
+        else if (syncable.isClientWritable(fieldId)) { // On server update, the player changed something so wake up
+            syncable.setVariable(fieldId, value);
+            syncable.wake();
+        }
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,52 @@
+package com.pauljoda.nucleus.network.packets.clientbound;
+
+import com.pauljoda.nucleus.common.blocks.entity.UpdatingBlockEntity;
+import com.pauljoda.nucleus.network.PayloadCompression;
+import com.pauljoda.nucleus.network.packets.ClientBoundPacket;
+import net.minecraft.core.BlockPos;
+import net.minecraft.nbt.CompoundTag;
+import net.minecraft.network.FriendlyByteBuf;
+import net.minecraft.world.entity.player.Player;
+
+/**
+ * The full update tag of a block entity, streamed after the chunk was sent with only its render data.
+ */
+public record BlockEntityTagPacket(BlockPos blockPosition, CompoundTag tag) implements ClientBoundPacket {
+
+    /*******************************************************************************************************************
+     * Encode/Decode                                                                                                   *
+     *******************************************************************************************************************/
+
+    public static BlockEntityTagPacket decode(FriendlyByteBuf buf) {
+        var blockPosition = BlockPos.of(buf.readLong());
+        var tag = PayloadCompression.readNbt(buf);
+        return new BlockEntityTagPacket(blockPosition, tag);
+    }
+
+    /**
+     * Write to buffer, large tags are compressed
+     *
+     * @param buf The buffer to write to
+     */
+    @Override
+    public void write(FriendlyByteBuf buf) {
+        buf.writeLong(blockPosition.asLong());
+        PayloadCompression.writeNbt(buf, tag);
+    }
+
+    /*******************************************************************************************************************
+     * Handle Packet                                                                                                   *
+     *******************************************************************************************************************/
+
+    /**
+     * Handles the packet on the client side.
+     *
+     * @param player The player that received the packet.
+     */
+    @Override
+    public void handleOnClient(Player player) {
+        // Safety check
+        if (player.level().getBlockEntity(blockPosition) instanceof UpdatingBlockEntity blockEntity)
+            blockEntity.handleUpdateTag(tag);
+    }
+}
@@ -0,0 +1,261 @@
+package com.pauljoda.nucleus.network.packets.clientbound;
+
+import com.pauljoda.nucleus.common.blocks.entity.Syncable;
+import com.pauljoda.nucleus.network.RegistryPalette;
+import com.pauljoda.nucleus.network.packets.ClientBoundPacket;
+import it.unimi.dsi.fastutil.ints.Int2ObjectLinkedOpenHashMap;
+import it.unimi.dsi.fastutil.ints.Int2ObjectMaps;
+import net.minecraft.core.BlockPos;
+import net.minecraft.nbt.CompoundTag;
+import net.minecraft.network.FriendlyByteBuf;
+import net.minecraft.resources.ResourceLocation;
+import net.minecraft.server.level.ServerPlayer;
+import net.minecraft.world.entity.player.Player;
+import net.minecraft.world.item.ItemStack;
+import net.neoforged.neoforge.fluids.FluidStack;
+import net.neoforged.neoforge.fluids.capability.templates.FluidTank;
+
+import javax.annotation.Nullable;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Changed inventory slots and tanks of a {@link Syncable}, built for one player.
+ * <p>
+ * Items and fluids are written as ids from the player's {@link RegistryPalette}, names are only sent the first time
+ * the player sees them. A changed slot costs a few bytes unless the stack has a tag.
+ */
+public record StackSyncPacket(BlockPos blockPosition, boolean resetPalette,
+                              List<ResourceLocation> newItems, List<ResourceLocation> newFluids,
+                              List<ItemSlot> items, List<FluidSlot> fluids) implements ClientBoundPacket {
+
+    /**
+     * The contents of one slot
+     *
+     * @param slot   The slot
+     * @param itemId The palette id, -1 for empty
+     * @param count  The stack size
+     * @param tag    The stack tag
+     */
+    public record ItemSlot(int slot, int itemId, int count, @Nullable CompoundTag tag) {
+    }
+
+    /**
+     * The contents of one tank
+     *
+     * @param tank    The tank
+     * @param fluidId The palette id, -1 for empty
+     * @param amount  The amount
+     * @param tag     The stack tag
+     */
+    public record FluidSlot(int tank, int fluidId, int amount, @Nullable CompoundTag tag) {
+    }
+
+    /*******************************************************************************************************************
+     * Encode/Decode                                                                                                   *
+     *******************************************************************************************************************/
+
+    public static StackSyncPacket decode(FriendlyByteBuf buf) {
+        var blockPosition = BlockPos.of(buf.readLong());
+        var resetPalette = buf.readBoolean();
+        List<ResourceLocation> newItems = buf.readList(FriendlyByteBuf::readResourceLocation);
+        List<ResourceLocation> newFluids = buf.readList(FriendlyByteBuf::readResourceLocation);
+
+        List<ItemSlot> items = buf.readList(buffer -> {
+            var slot = buffer.readVarInt();
+            var itemId = buffer.readVarInt() - 1;
+            if (itemId == -1)
+                return new ItemSlot(slot, -1, 0, null);
+            return new ItemSlot(slot, itemId, buffer.readVarInt(), buffer.readNbt());
+        });
+        List<FluidSlot> fluids = buf.readList(buffer -> {
+            var tank = buffer.readVarInt();
+            var fluidId = buffer.readVarInt() - 1;
+            if (fluidId == -1)
+                return new FluidSlot(tank, -1, 0, null);
+            return new FluidSlot(tank, fluidId, buffer.readVarInt(), buffer.readNbt());
+        });
+        return new StackSyncPacket(blockPosition, resetPalette, newItems, newFluids, items, fluids);
+    }
+
+    /**
+     * Write to buffer, ids are shifted by one so empty stacks are a single zero byte
+     *
+     * @param buf The buffer to write to
+     */
+    @Override
+    public void write(FriendlyByteBuf buf) {
+        buf.writeLong(blockPosition.asLong());
+        buf.writeBoolean(resetPalette);
+        buf.writeCollection(newItems, FriendlyByteBuf::writeResourceLocation);
+        buf.writeCollection(newFluids, FriendlyByteBuf::writeResourceLocation);
+
+        buf.writeCollection(items, (buffer, item) -> {
+            buffer.writeVarInt(item.slot());
+            buffer.writeVarInt(item.itemId() + 1);
+            if (item.itemId() != -1) {
+                buffer.writeVarInt(item.count());
+                buffer.writeNbt(item.tag());
+            }
+        });
+        buf.writeCollection(fluids, (buffer, fluid) -> {
+            buffer.writeVarInt(fluid.tank());
+            buffer.writeVarInt(fluid.fluidId() + 1);
+            if (fluid.fluidId() != -1) {
+                buffer.writeVarInt(fluid.amount());
+                buffer.writeNbt(fluid.tag());
+            }
+        });
+    }
+
+    /*******************************************************************************************************************
+     * Handle Packet                                                                                                   *
+     *******************************************************************************************************************/
+
+    /**
+     * Handles the packet on the client side.
+     *
+     * @param player The player that received the packet.
+     */
+    @Override
+    public void handleOnClient(Player player) {
+        // Always keep the palette in step with the server, even if the block entity is gone
+        RegistryPalette palette = RegistryPalette.INSTANCE;
+        palette.receive(resetPalette, newItems, newFluids);
+
+        // Safety check
+        if (!(player.level().getBlockEntity(blockPosition) instanceof Syncable syncable))
+            return;
+
+        for (ItemSlot item : items) {
+            ItemStack stack = ItemStack.EMPTY;
+            if (item.itemId() != -1) {
+                stack = new ItemStack(palette.getItem(item.itemId()), item.count());
+                stack.setTag(item.tag());
+            }
+            syncable.receiveItemStack(item.slot(), stack);
+        }
+
+        for (FluidSlot fluid : fluids) {
+            FluidStack stack = fluid.fluidId() == -1 ? FluidStack.EMPTY :
+                    new FluidStack(palette.getFluid(fluid.fluidId()), fluid.amount(), fluid.tag());
+            syncable.receiveFluidStack(fluid.tank(), stack);
+        }
+    }
+
+    /*******************************************************************************************************************
+     * Builder                                                                                                         *
+     *******************************************************************************************************************/
+
+    /**
+     * Collects the changed stacks of one block entity during the tick, then builds a packet for each player with
+     * their own palette ids
+     */
+    public static class Builder {
+        private final BlockPos blockPosition;
+        private final Int2ObjectLinkedOpenHashMap<ItemStack> changedItems = new Int2ObjectLinkedOpenHashMap<>();
+        private final Int2ObjectLinkedOpenHashMap<FluidStack> changedFluids = new Int2ObjectLinkedOpenHashMap<>();
+
+        public Builder(BlockPos blockPosition) {
+            this.blockPosition = blockPosition;
+        }
+
+        /**
+         * Adds the slots that differ from the stacks last sent. The first call only takes a snapshot, clients
+         * received the contents with the chunk
+         *
+         * @param items The current contents
+         * @param sent  The stacks last sent, null on the first call
+         * @return The stacks now sent, pass them to the next call
+         */
+        public ItemStack[] addChangedItems(List<ItemStack> items, @Nullable ItemStack[] sent) {
+            boolean snapshot = sent == null || sent.length != items.size();
+            if (snapshot)
+                sent = new ItemStack[items.size()];
+
+            for (int slot = 0; slot < items.size(); slot++) {
+                ItemStack stack = items.get(slot);
+                if (!snapshot && ItemStack.matches(sent[slot], stack))
+                    continue;
+
+                // Copy so later changes to the slot are seen and the packet is not changed under netty
+                sent[slot] = stack.copy();
+                if (!snapshot)
+                    changedItems.put(slot, sent[slot]);
+            }
+            return sent;
+        }
+
+        /**
+         * Adds the tanks that differ from the stacks last sent. The first call only takes a snapshot, clients
+         * received the contents with the chunk
+         *
+         * @param tanks The tanks
+         * @param sent  The stacks last sent, null on the first call
+         * @return The stacks now sent, pass them to the next call
+         */
+        public FluidStack[] addChangedFluids(FluidTank[] tanks, @Nullable FluidStack[] sent) {
+            boolean snapshot = sent == null || sent.length != tanks.length;
+            if (snapshot)
+                sent = new FluidStack[tanks.length];
+
+            for (int tank = 0; tank < tanks.length; tank++) {
+                FluidStack stack = tanks[tank] != null ? tanks[tank].getFluid() : FluidStack.EMPTY;
+                if (!snapshot && sent[tank].isFluidStackIdentical(stack))
+                    continue;
+
+                sent[tank] = stack.copy();
+                if (!snapshot)
+                    changedFluids.put(tank, sent[tank]);
+            }
+            return sent;
+        }
+
+        /**
+         * Checks if anything changed since the last clear
+         *
+         * @return True if there is nothing to send
+         */
+        public boolean isEmpty() {
+            return changedItems.isEmpty() && changedFluids.isEmpty();
+        }
+
+        /**
+         * Builds the packet for one player, assigning palette ids they do not have yet
+         *
+         * @param player The player to send to
+         * @return The packet
+         */
+        public StackSyncPacket build(ServerPlayer player) {
+            RegistryPalette.Palette palette = RegistryPalette.INSTANCE.getPalette(player);
+            boolean reset = palette.start();
+            List<ResourceLocation> newItems = new ArrayList<>(0);
+            List<ResourceLocation> newFluids = new ArrayList<>(0);
+
+            List<ItemSlot> items = new ArrayList<>(changedItems.size());
+            for (var changed : Int2ObjectMaps.fastIterable(changedItems)) {
+                ItemStack stack = changed.getValue();
+                items.add(stack.isEmpty() ? new ItemSlot(changed.getIntKey(), -1, 0, null) :
+                        new ItemSlot(changed.getIntKey(), palette.getItemId(stack.getItem(), newItems),
+                                stack.getCount(), stack.getTag()));
+            }
+
+            List<FluidSlot> fluids = new ArrayList<>(changedFluids.size());
+            for (var changed : Int2ObjectMaps.fastIterable(changedFluids)) {
+                FluidStack stack = changed.getValue();
+                fluids.add(stack.isEmpty() ? new FluidSlot(changed.getIntKey(), -1, 0, null) :
+                        new FluidSlot(changed.getIntKey(), palette.getFluidId(stack.getFluid(), newFluids),
+                                stack.getAmount(), stack.getTag()));
+            }
+            return new StackSyncPacket(blockPosition, reset, newItems, newFluids, items, fluids);
+        }
+
+        /**
+         * Forget the changes once every player has their packet
+         */
+        public void clear() {
+            changedItems.clear();
+            changedFluids.clear();
+        }
+    }
+}
@@ -0,0 +1,186 @@
+package com.pauljoda.nucleus.network.packets.clientbound;
+
+import com.pauljoda.nucleus.common.blocks.entity.Syncable;
+import com.pauljoda.nucleus.network.SyncValueCodec;
+import com.pauljoda.nucleus.network.packets.ClientBoundPacket;
+import it.unimi.dsi.fastutil.longs.Long2ObjectLinkedOpenHashMap;
+import it.unimi.dsi.fastutil.longs.Long2ObjectMaps;
+import net.minecraft.core.BlockPos;
+import net.minecraft.core.SectionPos;
+import net.minecraft.network.FriendlyByteBuf;
+import net.minecraft.world.entity.player.Player;
+import net.minecraft.world.level.ChunkPos;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * All synced field values a player receives in one tick, from every {@link Syncable} around them.
+ * <p>
+ * Entries are grouped by chunk, each chunk section writes its position once and each entry only carries its
+ * position inside that chunk. The server tick is sent once for the bundle, used by interpolated fields.
+ */
+public record SyncBundlePacket(long serverTick, List<Section> sections) implements ClientBoundPacket {
+
+    /**
+     * The synced values of one block entity
+     *
+     * @param blockPosition The block entity position
+     * @param fieldIds      The field ids
+     * @param values        The values, matching the ids
+     */
+    public record Entry(BlockPos blockPosition, int[] fieldIds, double[] values) {
+
+        /**
+         * Get the size of this entry on the wire, used for metrics
+         *
+         * @return The encoded size in bytes
+         */
+        public int getEncodedSize() {
+            int size = 3 + FriendlyByteBuf.getVarIntSize(fieldIds.length);
+            for (int i = 0; i < fieldIds.length; i++)
+                size += SyncValueCodec.getEncodedSize(fieldIds[i], values[i]);
+            return size;
+        }
+    }
+
+    /**
+     * The entries within one chunk
+     *
+     * @param chunkPos The packed chunk position
+     * @param entries  The entries in the chunk
+     */
+    public record Section(long chunkPos, List<Entry> entries) {
+    }
+
+    /*******************************************************************************************************************
+     * Encode/Decode                                                                                                   *
+     *******************************************************************************************************************/
+
+    public static SyncBundlePacket decode(FriendlyByteBuf buf) {
+        var serverTick = buf.readVarLong();
+        var sectionCount = buf.readVarInt();
+        List<Section> sections = new ArrayList<>(sectionCount);
+        for (int i = 0; i < sectionCount; i++) {
+            var chunkPos = buf.readLong();
+            var blockX = SectionPos.sectionToBlockCoord(ChunkPos.getX(chunkPos));
+            var blockZ = SectionPos.sectionToBlockCoord(ChunkPos.getZ(chunkPos));
+
+            var entryCount = buf.readVarInt();
+            List<Entry> entries = new ArrayList<>(entryCount);
+            for (int j = 0; j < entryCount; j++) {
+                var local = buf.readUnsignedByte();
+                var y = buf.readShort();
+                var fieldCount = buf.readVarInt();
+                var fieldIds = new int[fieldCount];
+                var values = new double[fieldCount];
+                for (int k = 0; k < fieldCount; k++) {
+                    var key = SyncValueCodec.readKey(buf);
+                    fieldIds[k] = SyncValueCodec.getFieldId(key);
+                    values[k] = SyncValueCodec.readValue(buf, key);
+                }
+                entries.add(new Entry(new BlockPos(blockX + (local >> 4), y, blockZ + (local & 15)), fieldIds, values));
+            }
+            sections.add(new Section(chunkPos, entries));
+        }
+        return new SyncBundlePacket(serverTick, sections);
+    }
+
+    /**
+     * Write to buffer, positions are written relative to their chunk and fields use the compact typed encoding
+     *
+     * @param buf The buffer to write to
+     */
+    @Override
+    public void write(FriendlyByteBuf buf) {
+        buf.writeVarLong(serverTick);
+        buf.writeVarInt(sections.size());
+        for (Section section : sections) {
+            buf.writeLong(section.chunkPos());
+            buf.writeVarInt(section.entries().size());
+            for (Entry entry : section.entries()) {
+                BlockPos pos = entry.blockPosition();
+                buf.writeByte(((pos.getX() & 15) << 4) | (pos.getZ() & 15));
+                buf.writeShort(pos.getY());
+                buf.writeVarInt(entry.fieldIds().length);
+                for (int i = 0; i < entry.fieldIds().length; i++)
+                    SyncValueCodec.writeField(buf, entry.fieldIds()[i], entry.values()[i]);
+            }
+        }
+    }
+
+    /*******************************************************************************************************************
+     * Handle Packet                                                                                                   *
+     *******************************************************************************************************************/
+
+    /**
+     * Handles the packet on the client side.
+     *
+     * @param player The player that received the packet.
+     */
+    @Override
+    public void handleOnClient(Player player) {
+        for (Section section : sections) {
+            for (Entry entry : section.entries()) {
+                // Safety check
+                if (!(player.level().getBlockEntity(entry.blockPosition()) instanceof Syncable syncable))
+                    continue;
+
+                for (int i = 0; i < entry.fieldIds().length; i++)
+                    syncable.receiveVariable(entry.fieldIds()[i], entry.values()[i], serverTick);
+            }
+        }
+    }
+
+    /*******************************************************************************************************************
+     * Builder                                                                                                         *
+     *******************************************************************************************************************/
+
+    /**
+     * Collects the entries for one player during the tick, grouping them by chunk
+     */
+    public static class Builder {
+        private final Long2ObjectLinkedOpenHashMap<List<Entry>> entriesByChunk = new Long2ObjectLinkedOpenHashMap<>();
+
+        /**
+         * Adds an entry to the bundle
+         *
+         * @param entry The entry to add
+         */
+        public void add(Entry entry) {
+            long chunkPos = ChunkPos.asLong(
+                    SectionPos.blockToSectionCoord(entry.blockPosition().getX()),
+                    SectionPos.blockToSectionCoord(entry.blockPosition().getZ()));
+            List<Entry> entries = entriesByChunk.get(chunkPos);
+            if (entries == null) {
+                entries = new ArrayList<>();
+                entriesByChunk.put(chunkPos, entries);
+            }
+            entries.add(entry);
+        }
+
+        /**
+         * Checks if anything was added since the last build
+         *
+         * @return True if there is nothing to send
+         */
+        public boolean isEmpty() {
+            return entriesByChunk.isEmpty();
+        }
+
+        /**
+         * Builds the packet from everything added and empties the builder so it can be reused. The entry lists are
+         * handed to the packet, the map keeps its capacity
+         *
+         * @param serverTick The current server tick
+         * @return The bundle packet
+         */
+        public SyncBundlePacket build(long serverTick) {
+            List<Section> sections = new ArrayList<>(entriesByChunk.size());
+            for (var chunk : Long2ObjectMaps.fastIterable(entriesByChunk))
+                sections.add(new Section(chunk.getLongKey(), chunk.getValue()));
+            entriesByChunk.clear();
+            return new SyncBundlePacket(serverTick, sections);
+        }
+    }
+}
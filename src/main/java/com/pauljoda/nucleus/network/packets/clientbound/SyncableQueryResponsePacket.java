@@ -0,0 +1,52 @@
+package com.pauljoda.nucleus.network.packets.clientbound;
+
+import com.pauljoda.nucleus.network.ClientRequestTracker;
+import com.pauljoda.nucleus.network.SyncValueCodec;
+import com.pauljoda.nucleus.network.packets.ClientBoundPacket;
+import com.pauljoda.nucleus.network.packets.serverbound.SyncableQueryPacket;
+import net.minecraft.network.FriendlyByteBuf;
+import net.minecraft.world.entity.player.Player;
+
+/**
+ * The answer to a {@link SyncableQueryPacket}, matched to the request by its correlation id.
+ */
+public record SyncableQueryResponsePacket(int requestId, boolean success, double value) implements ClientBoundPacket {
+
+    /*******************************************************************************************************************
+     * Encode/Decode                                                                                                   *
+     *******************************************************************************************************************/
+
+    public static SyncableQueryResponsePacket decode(FriendlyByteBuf buf) {
+        var requestId = buf.readVarInt();
+        var success = buf.readBoolean();
+        var value = success ? SyncValueCodec.readValue(buf, SyncValueCodec.readKey(buf)) : 0.0;
+        return new SyncableQueryResponsePacket(requestId, success, value);
+    }
+
+    /**
+     * Write to buffer, the value uses the compact typed encoding
+     *
+     * @param buf The buffer to write to
+     */
+    @Override
+    public void write(FriendlyByteBuf buf) {
+        buf.writeVarInt(requestId);
+        buf.writeBoolean(success);
+        if (success)
+            SyncValueCodec.writeField(buf, 0, value);
+    }
+
+    /*******************************************************************************************************************
+     * Handle Packet                                                                                                   *
+     *******************************************************************************************************************/
+
+    /**
+     * Handles the packet on the client side.
+     *
+     * @param player The player that received the packet.
+     */
+    @Override
+    public void handleOnClient(Player player) {
+        ClientRequestTracker.INSTANCE.complete(requestId, success, value);
+    }
+}
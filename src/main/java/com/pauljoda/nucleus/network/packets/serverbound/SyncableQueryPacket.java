@@ -0,0 +1,66 @@
+package com.pauljoda.nucleus.network.packets.serverbound;
+
+import com.pauljoda.nucleus.common.blocks.entity.Syncable;
+import com.pauljoda.nucleus.network.PacketManager;
+import com.pauljoda.nucleus.network.PacketRateLimiter;
+import com.pauljoda.nucleus.network.packets.ServerBoundPacket;
+import com.pauljoda.nucleus.network.packets.clientbound.SyncableQueryResponsePacket;
+import net.minecraft.core.BlockPos;
+import net.minecraft.network.FriendlyByteBuf;
+import net.minecraft.server.level.ServerPlayer;
+import net.minecraft.world.level.Level;
+
+/**
+ * Asks the server for the value of a field, answered with a {@link SyncableQueryResponsePacket} sent only to the
+ * player that asked.
+ */
+public record SyncableQueryPacket(int requestId, int fieldId, BlockPos blockPosition) implements ServerBoundPacket {
+
+    /*******************************************************************************************************************
+     * Encode/Decode                                                                                                   *
+     *******************************************************************************************************************/
+
+    public static SyncableQueryPacket decode(FriendlyByteBuf buf) {
+        var requestId = buf.readVarInt();
+        var fieldId = buf.readVarInt();
+        var blockPosition = BlockPos.of(buf.readLong());
+        return new SyncableQueryPacket(requestId, fieldId, blockPosition);
+    }
+
+    /**
+     * Write to buffer
+     *
+     * @param buf The buffer to write to
+     */
+    @Override
+    public void write(FriendlyByteBuf buf) {
+        buf.writeVarInt(requestId);
+        buf.writeVarInt(fieldId);
+        buf.writeLong(blockPosition.asLong());
+    }
+
+    /*******************************************************************************************************************
+     * Handle Packet                                                                                                   *
+     *******************************************************************************************************************/
+
+    /**
+     * Handles the packet on the server side, refused requests are still answered so the client does not wait for the
+     * timeout. Rate limited requests are dropped.
+     *
+     * @param player The server player that received the packet.
+     */
+    @Override
+    public void handleOnServer(ServerPlayer player) {
+        if (!PacketRateLimiter.INSTANCE.tryAcquire(player))
+            return;
+
+        Level level = player.level();
+        if (level.isLoaded(blockPosition) &&
+                level.getBlockEntity(blockPosition) instanceof Syncable syncable &&
+                syncable.canPlayerAccess(player))
+            PacketManager.INSTANCE.sendTo(
+                    new SyncableQueryResponsePacket(requestId, true, syncable.getVariable(fieldId)), player);
+        else
+            PacketManager.INSTANCE.sendTo(new SyncableQueryResponsePacket(requestId, false, 0), player);
+    }
+}
@@ -0,0 +1,161 @@
+package com.pauljoda.nucleus.network.sim;
+
+import com.pauljoda.nucleus.manager.NetworkManager;
+import io.netty.buffer.Unpooled;
+import net.minecraft.network.FriendlyByteBuf;
+import net.minecraft.network.protocol.common.custom.CustomPacketPayload;
+import net.minecraft.resources.ResourceLocation;
+import net.minecraft.util.RandomSource;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Deque;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * An in memory connection for simulating packet traffic. Packets are encoded on send and decoded on delivery with the
+ * reader registered in {@link NetworkManager}, so the full wire path is exercised. Every delivered packet is encoded
+ * again and compared with what was sent, packets that do not read back the same are reported.
+ * <p>
+ * Latency and jitter are in ticks. Delivery keeps the send order like the real connection does, a late packet holds
+ * back the ones behind it. Lost packets are never delivered.
+ */
+public class LoopbackChannel {
+    // Settings
+    private final int latencyTicks;
+    private final int jitterTicks;
+    private final double lossChance;
+    private final RandomSource random;
+
+    // Packets on the wire, in send order
+    private final Deque<InFlight> inFlight = new ArrayDeque<>();
+    private long lastDeliveryTick = 0;
+
+    // Stats
+    private long sentPackets, sentBytes, droppedPackets, deliveredPackets;
+    private final Set<ResourceLocation> mismatchedPackets = new LinkedHashSet<>();
+
+    /**
+     * An encoded packet waiting for delivery
+     */
+    private record InFlight(long deliveryTick, ResourceLocation id, byte[] data) {
+    }
+
+    /**
+     * Creates a channel
+     *
+     * @param latencyTicks Ticks every packet takes to arrive
+     * @param jitterTicks  Max extra random ticks per packet
+     * @param lossChance   Chance 0-1 that a packet is lost
+     * @param seed         Seed for jitter and loss, so runs can be compared
+     */
+    public LoopbackChannel(int latencyTicks, int jitterTicks, double lossChance, long seed) {
+        this.latencyTicks = Math.max(0, latencyTicks);
+        this.jitterTicks = Math.max(0, jitterTicks);
+        this.lossChance = Math.max(0, Math.min(1, lossChance));
+        this.random = RandomSource.create(seed);
+    }
+
+    /**
+     * Encodes the packet and puts it on the wire
+     *
+     * @param packet The packet to send
+     * @param tick   The current tick
+     */
+    public void send(CustomPacketPayload packet, long tick) {
+        byte[] data = encode(packet);
+        sentPackets++;
+        sentBytes += data.length;
+        if (random.nextDouble() < lossChance) {
+            droppedPackets++;
+            return;
+        }
+
+        long deliveryTick = tick + latencyTicks + (jitterTicks > 0 ? random.nextInt(jitterTicks + 1) : 0);
+        lastDeliveryTick = Math.max(lastDeliveryTick, deliveryTick);
+        inFlight.add(new InFlight(lastDeliveryTick, packet.id(), data));
+    }
+
+    /**
+     * Decodes every packet due by the given tick
+     *
+     * @param tick The current tick
+     * @return The packets delivered, in send order
+     */
+    public List<CustomPacketPayload> receive(long tick) {
+        List<CustomPacketPayload> delivered = new ArrayList<>();
+        while (!inFlight.isEmpty() && inFlight.peekFirst().deliveryTick() <= tick) {
+            InFlight packet = inFlight.pollFirst();
+            var reader = NetworkManager.getReader(packet.id());
+            if (reader == null)
+                throw new IllegalStateException("No packet registered for " + packet.id());
+
+            FriendlyByteBuf buf = new FriendlyByteBuf(Unpooled.wrappedBuffer(packet.data()));
+            CustomPacketPayload decoded;
+            try {
+                decoded = reader.apply(buf);
+                if (buf.isReadable())
+                    mismatchedPackets.add(packet.id());
+            } finally {
+                buf.release();
+            }
+
+            if (!Arrays.equals(encode(decoded), packet.data()))
+                mismatchedPackets.add(packet.id());
+            delivered.add(decoded);
+            deliveredPackets++;
+        }
+        return delivered;
+    }
+
+    /**
+     * Writes the packet to bytes
+     */
+    private static byte[] encode(CustomPacketPayload packet) {
+        FriendlyByteBuf buf = new FriendlyByteBuf(Unpooled.buffer());
+        try {
+            packet.write(buf);
+            byte[] data = new byte[buf.readableBytes()];
+            buf.readBytes(data);
+            return data;
+        } finally {
+            buf.release();
+        }
+    }
+
+    /**
+     * Checks if packets are still on the wire
+     *
+     * @return True if nothing is waiting for delivery
+     */
+    public boolean isIdle() {
+        return inFlight.isEmpty();
+    }
+
+    /*******************************************************************************************************************
+     * Accessors/Mutators                                                                                              *
+     *******************************************************************************************************************/
+
+    public long getSentPackets() {
+        return sentPackets;
+    }
+
+    public long getSentBytes() {
+        return sentBytes;
+    }
+
+    public long getDroppedPackets() {
+        return droppedPackets;
+    }
+
+    public long getDeliveredPackets() {
+        return deliveredPackets;
+    }
+
+    public Set<ResourceLocation> getMismatchedPackets() {
+        return mismatchedPackets;
+    }
+}
@@ -0,0 +1,329 @@
+package com.pauljoda.nucleus.network.sim;
+
+import com.pauljoda.nucleus.Config;
+import com.pauljoda.nucleus.common.blocks.entity.sync.SyncedField;
+import com.pauljoda.nucleus.common.blocks.entity.sync.SyncedFieldRegistry;
+import com.pauljoda.nucleus.manager.NetworkManager;
+import com.pauljoda.nucleus.network.SyncBundleQueue;
+import com.pauljoda.nucleus.network.packets.bidirectional.SyncableFieldPacket;
+import com.pauljoda.nucleus.network.packets.clientbound.BlockEntityTagPacket;
+import com.pauljoda.nucleus.network.packets.clientbound.StackSyncPacket;
+import com.pauljoda.nucleus.network.packets.clientbound.SyncBundlePacket;
+import com.pauljoda.nucleus.network.packets.clientbound.SyncableQueryResponsePacket;
+import com.pauljoda.nucleus.network.packets.serverbound.SyncableQueryPacket;
+import it.unimi.dsi.fastutil.ints.Int2DoubleLinkedOpenHashMap;
+import net.minecraft.core.BlockPos;
+import net.minecraft.nbt.CompoundTag;
+import net.minecraft.network.protocol.common.custom.CustomPacketPayload;
+import net.minecraft.resources.ResourceLocation;
+import net.minecraft.util.RandomSource;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Runs a scripted sync workload through a {@link LoopbackChannel} without a level or client. Each simulated block
+ * entity registers its fields in a {@link SyncedFieldRegistry} like a {@link
+ * com.pauljoda.nucleus.common.blocks.entity.Syncable} does, changes are collected and bundled with the same
+ * {@link SyncBundleQueue} and byte budget as a real player. The client side applies the decoded bundles to its own
+ * fields and the time until it matches the server is measured.
+ * <p>
+ * Before the workload a sample of every registered packet is sent over a clean channel, so each codec is checked to
+ * read back what it wrote. Nothing here touches a level, so a simulation may run off the server thread.
+ */
+public class SyncSimulation {
+    // Ticks to run after the workload stops, so late values can arrive
+    private static final int SETTLE_TICKS = 100;
+
+    /**
+     * How the server values change over time
+     */
+    public enum Workload {
+        RAMP,  // Every field grows a little every tick, like energy filling up
+        NOISE, // Random fractional values every tick, the worst case for encoding
+        STEP   // Occasional jumps, like a machine changing state
+    }
+
+    /**
+     * What to simulate
+     *
+     * @param workload       How values change
+     * @param blockEntities  Simulated block entities, spread across chunks
+     * @param fieldsPerBlock Fields on each block entity
+     * @param ticks          Ticks to run the workload
+     * @param minInterval    Send interval of every field
+     */
+    public record Settings(Workload workload, int blockEntities, int fieldsPerBlock, int ticks, int minInterval) {
+    }
+
+    /**
+     * What was measured
+     */
+    public record Result(Settings settings, long ticks, long sentPackets, long sentBytes, long droppedPackets,
+                         long convergences, double averageConvergenceTicks, long maxConvergenceTicks,
+                         int unconvergedFields, int checkedPackets, List<String> packetProblems) {
+
+        /**
+         * Builds a readable report
+         *
+         * @return The report lines
+         */
+        public List<String> toLines() {
+            double seconds = ticks / 20.0;
+            List<String> lines = new ArrayList<>();
+            lines.add(String.format("Nucleus sync simulation: %s, %d block entities x %d fields, interval %d, %d ticks",
+                    settings.workload(), settings.blockEntities(), settings.fieldsPerBlock(),
+                    settings.minInterval(), ticks));
+            lines.add(String.format("  sent %d packets (%.1f/s), %d B (%.1f B/s), %d lost",
+                    sentPackets, sentPackets / seconds, sentBytes, sentBytes / seconds, droppedPackets));
+            lines.add(String.format("  converged %d times, avg %.2f ticks, max %d ticks, %d fields never converged",
+                    convergences, averageConvergenceTicks, maxConvergenceTicks, unconvergedFields));
+            if (packetProblems.isEmpty())
+                lines.add(String.format("  all %d registered packets read back what they wrote", checkedPackets));
+            for (String problem : packetProblems)
+                lines.add("  " + problem);
+            return lines;
+        }
+    }
+
+    /**
+     * One simulated block entity, the last field is cosmetic like a progress display
+     */
+    private static class SimulatedBlock {
+        private final BlockPos pos;
+        private final double[] serverValues;
+        private final double[] clientValues;
+        private final long[] divergedSince;
+        private final SyncedFieldRegistry serverFields = new SyncedFieldRegistry();
+        private final SyncedFieldRegistry clientFields = new SyncedFieldRegistry();
+
+        private SimulatedBlock(BlockPos pos, int fieldCount, int minInterval) {
+            this.pos = pos;
+            this.serverValues = new double[fieldCount];
+            this.clientValues = new double[fieldCount];
+            this.divergedSince = new long[fieldCount];
+            for (int i = 0; i < fieldCount; i++) {
+                int index = i;
+                SyncedField field = serverFields.register(i, () -> serverValues[index],
+                        value -> serverValues[index] = value).minInterval(minInterval);
+                if (fieldCount > 1 && i == fieldCount - 1)
+                    field.cosmetic();
+                clientFields.register(i, () -> clientValues[index], value -> clientValues[index] = value);
+                divergedSince[i] = -1;
+            }
+        }
+    }
+
+    // Variables
+    private final Settings settings;
+    private final LoopbackChannel channel;
+    private final RandomSource random;
+    private final long seed;
+    private final List<SimulatedBlock> blocks = new ArrayList<>();
+
+    // The simulated player's queue, and the changed values of one block entity while collecting
+    private final SyncBundleQueue queue = new SyncBundleQueue();
+    private final Int2DoubleLinkedOpenHashMap changed = new Int2DoubleLinkedOpenHashMap();
+
+    // Convergence stats
+    private long convergences, convergenceTicks, maxConvergenceTicks;
+
+    /**
+     * Creates a simulation
+     *
+     * @param settings What to simulate
+     * @param channel  The channel to send over
+     * @param seed     Seed for the workload
+     */
+    public SyncSimulation(Settings settings, LoopbackChannel channel, long seed) {
+        this.settings = settings;
+        this.channel = channel;
+        this.random = RandomSource.create(seed);
+        this.seed = seed;
+
+        // Laid out every 3 blocks on a grid, a few dozen per chunk like a busy base
+        for (int i = 0; i < settings.blockEntities(); i++)
+            blocks.add(new SimulatedBlock(new BlockPos((i % 64) * 3, 64 + i / 4096, ((i / 64) % 64) * 3),
+                    settings.fieldsPerBlock(), settings.minInterval()));
+    }
+
+    /**
+     * Checks the packet codecs, runs the workload then lets the client settle
+     *
+     * @return The measurements
+     */
+    public Result run() {
+        List<String> packetProblems = new ArrayList<>();
+        int checkedPackets = checkPacketCodecs(packetProblems);
+
+        long tick = 0;
+        for (; tick < settings.ticks(); tick++) {
+            updateServerValues(tick);
+            sendChanges(tick);
+            receive(tick);
+        }
+
+        // Values stop changing, anything still held back or in flight can arrive
+        for (int i = 0; i < SETTLE_TICKS; i++, tick++) {
+            sendChanges(tick);
+            receive(tick);
+        }
+
+        int unconverged = 0;
+        for (SimulatedBlock block : blocks)
+            for (int i = 0; i < block.divergedSince.length; i++)
+                if (block.divergedSince[i] >= 0)
+                    unconverged++;
+
+        for (ResourceLocation id : channel.getMismatchedPackets())
+            packetProblems.add(id + " did not read back what it wrote during the workload");
+
+        return new Result(settings, tick, channel.getSentPackets(), channel.getSentBytes(),
+                channel.getDroppedPackets(), convergences,
+                convergences > 0 ? (double) convergenceTicks / convergences : 0, maxConvergenceTicks, unconverged,
+                checkedPackets, packetProblems);
+    }
+
+    /**
+     * Sends a sample of every packet over a clean channel and checks each registered packet was covered and read
+     * back what it wrote
+     *
+     * @param problems Problems found are added here
+     * @return How many registered packets were checked
+     */
+    private int checkPacketCodecs(List<String> problems) {
+        BlockPos pos = new BlockPos(-37, -12, 1025);
+        CompoundTag tag = new CompoundTag();
+        tag.putInt("energy", 12000);
+        tag.putString("owner", "nucleus");
+
+        SyncBundlePacket.Builder bundle = new SyncBundlePacket.Builder();
+        bundle.add(new SyncBundlePacket.Entry(pos, new int[]{0, 1, 2, 300}, new double[]{0, -7, 0.1, 1e12}));
+        bundle.add(new SyncBundlePacket.Entry(pos.offset(20, 0, -20), new int[]{4}, new double[]{1.5}));
+
+        List<CustomPacketPayload> samples = List.of(
+                new SyncableFieldPacket(true, 3, 12.5, pos),
+                bundle.build(Long.MAX_VALUE / 3),
+                new BlockEntityTagPacket(pos, tag),
+                new StackSyncPacket(pos, true,
+                        List.of(new ResourceLocation("minecraft", "stone")),
+                        List.of(new ResourceLocation("minecraft", "water")),
+                        List.of(new StackSyncPacket.ItemSlot(0, 0, 64, tag),
+                                new StackSyncPacket.ItemSlot(5, -1, 0, null)),
+                        List.of(new StackSyncPacket.FluidSlot(0, 0, 1000, null))),
+                new SyncableQueryPacket(7, 2, pos),
+                new SyncableQueryResponsePacket(7, true, 40.5));
+
+        LoopbackChannel clean = new LoopbackChannel(0, 0, 0, seed);
+        Set<ResourceLocation> sampled = new HashSet<>();
+        for (CustomPacketPayload sample : samples) {
+            clean.send(sample, 0);
+            sampled.add(sample.id());
+        }
+        clean.receive(0);
+
+        int checked = 0;
+        for (ResourceLocation id : NetworkManager.getPacketIds()) {
+            if (!sampled.contains(id))
+                problems.add(id + " has no sample in the simulation, its codec was not checked");
+            else if (clean.getMismatchedPackets().contains(id))
+                problems.add(id + " did not read back what it wrote");
+            else
+                checked++;
+        }
+        return checked;
+    }
+
+    /**
+     * Changes the server values according to the workload
+     */
+    private void updateServerValues(long tick) {
+        for (SimulatedBlock block : blocks) {
+            for (int i = 0; i < block.serverValues.length; i++) {
+                double value = switch (settings.workload()) {
+                    case RAMP -> block.serverValues[i] + 7 + i;
+                    case NOISE -> random.nextDouble() * 1000;
+                    case STEP -> random.nextInt(40) == 0 ? random.nextInt(1000) : block.serverValues[i];
+                };
+                if (Double.compare(value, block.serverValues[i]) != 0) {
+                    block.serverValues[i] = value;
+                    if (block.divergedSince[i] < 0)
+                        block.divergedSince[i] = tick;
+                }
+            }
+        }
+    }
+
+    /**
+     * Collects the changed fields of every block and sends the player's bundle for the tick, within the configured
+     * byte budget
+     */
+    private void sendChanges(long tick) {
+        for (SimulatedBlock block : blocks) {
+            block.serverFields.collectChanged(tick, (field, value) -> changed.put(field.getId(), value));
+            if (changed.isEmpty())
+                continue;
+
+            SyncBundlePacket.Entry critical = block.serverFields.createEntry(block.pos, changed, false);
+            if (critical != null)
+                queue.add(critical, false);
+            SyncBundlePacket.Entry cosmetic = block.serverFields.createEntry(block.pos, changed, true);
+            if (cosmetic != null)
+                queue.add(cosmetic, true);
+            changed.clear();
+        }
+
+        SyncBundlePacket bundle = queue.build(Config.syncBytesPerTick, tick);
+        if (bundle != null)
+            channel.send(bundle, tick);
+    }
+
+    /**
+     * Applies delivered bundles to the client values and records convergence
+     */
+    private void receive(long tick) {
+        for (CustomPacketPayload packet : channel.receive(tick)) {
+            if (!(packet instanceof SyncBundlePacket bundle))
+                continue;
+
+            for (SyncBundlePacket.Section section : bundle.sections())
+                for (SyncBundlePacket.Entry entry : section.entries())
+                    apply(entry, tick);
+        }
+    }
+
+    /**
+     * Applies one entry, a field converges when the client value matches the server again
+     */
+    private void apply(SyncBundlePacket.Entry entry, long tick) {
+        SimulatedBlock block = findBlock(entry.blockPosition());
+        if (block == null)
+            return;
+
+        for (int i = 0; i < entry.fieldIds().length; i++) {
+            int id = entry.fieldIds()[i];
+            SyncedField field = block.clientFields.get(id);
+            if (field == null)
+                continue;
+
+            field.setValue(entry.values()[i]);
+            if (block.divergedSince[id] >= 0 && Double.compare(block.clientValues[id], block.serverValues[id]) == 0) {
+                long taken = tick - block.divergedSince[id];
+                convergences++;
+                convergenceTicks += taken;
+                maxConvergenceTicks = Math.max(maxConvergenceTicks, taken);
+                block.divergedSince[id] = -1;
+            }
+        }
+    }
+
+    /**
+     * Finds the block at the position, positions are laid out on a grid so this is a direct lookup
+     */
+    private SimulatedBlock findBlock(BlockPos pos) {
+        int index = (pos.getY() - 64) * 4096 + (pos.getZ() / 3) * 64 + pos.getX() / 3;
+        return index >= 0 && index < blocks.size() && blocks.get(index).pos.equals(pos) ? blocks.get(index) : null;
+    }
+}
@@ -0,0 +1,88 @@
+package com.pauljoda.nucleus.network.sim;
+
+import com.pauljoda.nucleus.manager.NetworkManager;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Runs fixed, seeded {@link SyncSimulation}s without a game and fails if one regresses. Run by the netSimCheck gradle
+ * task as part of check, the same simulations can be compared in game with /nucleus netsim.
+ * <p>
+ * Each run must read back every registered packet, converge every field once values settle and stay under a byte
+ * ceiling. Ceilings are the values each run sends times the most the compact encoding should need per value,
+ * including its share of the entry and chunk headers, so going back to raw ids and doubles fails the check.
+ */
+public class SyncSimulationCheck {
+    private static final int FIELDS_PER_BLOCK = 4;
+    private static final int TICKS = 200;
+
+    /**
+     * One simulation and its limits
+     *
+     * @param settings     What to simulate
+     * @param latencyTicks Channel latency
+     * @param jitterTicks  Channel jitter
+     * @param seed         Seed for the workload and channel
+     * @param maxBytes     Most bytes the run may send
+     */
+    private record Check(SyncSimulation.Settings settings, int latencyTicks, int jitterTicks, long seed,
+                         long maxBytes) {
+    }
+
+    private static final List<Check> CHECKS = List.of(
+            // Every field grows every tick, small ints cost about 3 bytes each with the entry header
+            new Check(new SyncSimulation.Settings(SyncSimulation.Workload.RAMP, 500, FIELDS_PER_BLOCK, TICKS, 0),
+                    0, 0, 1L, 500L * FIELDS_PER_BLOCK * TICKS * 6),
+            // Fractional values need a full double, sent every 5 ticks plus the first and final values
+            new Check(new SyncSimulation.Settings(SyncSimulation.Workload.NOISE, 200, FIELDS_PER_BLOCK, TICKS, 5),
+                    0, 0, 2L, 200L * FIELDS_PER_BLOCK * (TICKS / 5 + 2) * 14),
+            // About 1 in 40 fields jump each tick over a laggy connection, each change may carry its own headers
+            new Check(new SyncSimulation.Settings(SyncSimulation.Workload.STEP, 1000, FIELDS_PER_BLOCK, TICKS, 0),
+                    2, 2, 3L, 1000L * FIELDS_PER_BLOCK * TICKS / 40 * 20));
+
+    /**
+     * Runs every check, printing the reports and throwing if any failed
+     *
+     * @param args Unused
+     */
+    public static void main(String[] args) {
+        NetworkManager.registerReaders();
+
+        List<String> failures = new ArrayList<>();
+        for (Check check : CHECKS) {
+            var channel = new LoopbackChannel(check.latencyTicks(), check.jitterTicks(), 0, check.seed());
+            var result = new SyncSimulation(check.settings(), channel, check.seed()).run();
+            result.toLines().forEach(System.out::println);
+            failures.addAll(verify(check, result));
+        }
+
+        if (!failures.isEmpty()) {
+            failures.forEach(System.err::println);
+            throw new IllegalStateException(failures.size() + " sync simulation checks failed");
+        }
+        System.out.println("All sync simulation checks passed");
+    }
+
+    /**
+     * Compares a result with the limits of its check
+     *
+     * @param check  The check that was run
+     * @param result What was measured
+     * @return The failures, empty if the check passed
+     */
+    private static List<String> verify(Check check, SyncSimulation.Result result) {
+        String name = check.settings().workload().name();
+        List<String> failures = new ArrayList<>();
+        for (String problem : result.packetProblems())
+            failures.add(name + ": " + problem);
+        if (result.checkedPackets() == 0)
+            failures.add(name + ": no packet codecs were checked, are the readers registered?");
+        if (result.unconvergedFields() > 0)
+            failures.add(name + ": " + result.unconvergedFields() + " fields never converged");
+        if (result.sentBytes() > check.maxBytes())
+            failures.add(name + ": sent " + result.sentBytes() + " B, more than the "
+                    + check.maxBytes() + " B allowed");
+        return failures;
+    }
+}
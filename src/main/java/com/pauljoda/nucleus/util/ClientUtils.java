@@ -31,6 +31,15 @@ public class ClientUtils {
         return NumberFormat.getNumberInstance(Locale.forLanguageTag(Minecraft.getInstance().options.languageCode)).format(number);
     }
 
+    /**
+     * Get the partial tick of the frame being drawn, how far we are between the last tick and the next
+     *
+     * @return The partial tick, 0-1
+     */
+    public static float getPartialTick() {
+        return Minecraft.getInstance().getFrameTime();
+    }
+
     /**
      * Get if key is currently pressed
      *
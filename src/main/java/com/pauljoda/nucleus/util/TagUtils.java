@@ -0,0 +1,78 @@
+package com.pauljoda.nucleus.util;
+
+import net.minecraft.nbt.CompoundTag;
+import net.minecraft.nbt.ListTag;
+import net.minecraft.nbt.StringTag;
+import net.minecraft.nbt.Tag;
+
+/**
+ * Helpers for building and applying differences between two compound tags
+ */
+public class TagUtils {
+    // Reserved keys used inside a diff
+    public static final String REMOVED_KEYS_TAG = "nucleus:removed";
+    public static final String PATCH_TAG = "nucleus:patch";
+
+    /**
+     * Builds a diff that turns the previous tag into the current one. Changed compounds are diffed recursively,
+     * any other changed value is sent whole and removed keys are listed by name.
+     * <p>
+     * The diff shares child tags with current, do not modify current after building
+     *
+     * @param previous The tag the receiver already has
+     * @param current  The tag the receiver should end up with
+     * @return The diff, empty if both tags are equal
+     */
+    public static CompoundTag diff(CompoundTag previous, CompoundTag current) {
+        CompoundTag diff = new CompoundTag();
+
+        ListTag removed = new ListTag();
+        for (String key : previous.getAllKeys()) {
+            if (!current.contains(key))
+                removed.add(StringTag.valueOf(key));
+        }
+        if (!removed.isEmpty())
+            diff.put(REMOVED_KEYS_TAG, removed);
+
+        for (String key : current.getAllKeys()) {
+            Tag value = current.get(key);
+            Tag previousValue = previous.get(key);
+            if (value == null || value.equals(previousValue))
+                continue;
+
+            if (value instanceof CompoundTag compound && previousValue instanceof CompoundTag previousCompound) {
+                CompoundTag patch = diff(previousCompound, compound);
+                patch.putBoolean(PATCH_TAG, true);
+                diff.put(key, patch);
+            } else
+                diff.put(key, value);
+        }
+
+        return diff;
+    }
+
+    /**
+     * Applies a diff built by {@link #diff(CompoundTag, CompoundTag)} to the target tag
+     *
+     * @param target The tag to modify, should match the previous tag the diff was built from
+     * @param diff   The diff to apply
+     */
+    public static void applyDiff(CompoundTag target, CompoundTag diff) {
+        ListTag removed = diff.getList(REMOVED_KEYS_TAG, Tag.TAG_STRING);
+        for (int i = 0; i < removed.size(); i++)
+            target.remove(removed.getString(i));
+
+        for (String key : diff.getAllKeys()) {
+            if (key.equals(REMOVED_KEYS_TAG) || key.equals(PATCH_TAG))
+                continue;
+
+            Tag value = diff.get(key);
+            if (value instanceof CompoundTag patch && patch.getBoolean(PATCH_TAG)) {
+                CompoundTag existing = target.get(key) instanceof CompoundTag compound ? compound : new CompoundTag();
+                applyDiff(existing, patch);
+                target.put(key, existing);
+            } else if (value != null)
+                target.put(key, value.copy());
+        }
+    }
+}